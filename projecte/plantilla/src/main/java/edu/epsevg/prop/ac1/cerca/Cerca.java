@@ -1,5 +1,6 @@
 package edu.epsevg.prop.ac1.cerca;
 
+import edu.epsevg.prop.ac1.model.Accessibilitat;
 import edu.epsevg.prop.ac1.model.Mapa;
 import edu.epsevg.prop.ac1.resultat.ResultatCerca;
 
@@ -11,4 +12,13 @@ public abstract class Cerca {
     }
 
     public abstract void ferCerca(Mapa inicial, ResultatCerca rc);
+
+    /**
+     * Comprovació prèvia a qualsevol cerca (veure Accessibilitat): si ni ignorant els
+     * altres agents cap agent pot arribar a la sortida, no cal explorar res.
+     * @return true si la instància no té solució
+     */
+    protected static boolean esInsoluble(Mapa inicial) {
+        return !Accessibilitat.de(inicial.getTauler()).esResoluble(inicial);
+    }
 }
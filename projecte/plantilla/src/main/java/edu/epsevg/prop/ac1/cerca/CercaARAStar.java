@@ -0,0 +1,211 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+
+/**
+ * ARA* (Anytime Repairing A*): A* ponderat, f = g + w*h, amb un pes w que comença gran i
+ * es va reduint fins a 1 mentre quedi temps del pressupost.
+ *
+ * La primera solució es publica a ResultatCerca tan bon punt es troba, amb la seva fita
+ * de subòptimalitat (min(w, cost / mínim de g + h dels nodes pendents)). Cada iteració
+ * següent reaprofita la feina feta: manté les g i els pares de tots els estats, i només
+ * torna a obrir els estats que han millorat la g després de tancar-se (llista INCONS) i
+ * els que ja eren oberts, reordenats amb el pes nou.
+ *
+ * S'acaba quan s'exhaureix el pressupost o quan la fita arriba a 1 (solució òptima,
+ * amb una heurística admissible). Sempre es guarda la millor g de cada estat, i per tant
+ * usarLNT no hi té efecte.
+ */
+public class CercaARAStar extends Cerca {
+    private static final int OBERT = 1, TANCAT = 2, INCONSISTENT = 3;
+    private static final int INTERVAL_RELLOTGE = 256;
+
+    private final Heuristica heur;
+    private final long pressupostMs;
+    private final double pesInicial;
+    private final double decrement;
+
+    // Estat de la cerca en curs: un índex per estat
+    private TaulaEstats index;
+    private List<Node> nodes;      // millor node conegut de cada estat
+    private byte[] situacio;
+    private PriorityQueue<Entrada> oberts;
+    private List<Integer> incons;
+    private Node millorMeta;
+    private long limitTemps;
+
+    /**
+     * ARA* amb pes inicial 3, que baixa de 0.5 en 0.5
+     * @param pressupostMs temps màxim de cerca en mil·lisegons
+     */
+    public CercaARAStar(boolean usarLNT, Heuristica heur, long pressupostMs) {
+        this(usarLNT, heur, pressupostMs, 3.0, 0.5);
+    }
+
+    /**
+     * @param pressupostMs temps màxim de cerca en mil·lisegons
+     * @param pesInicial pes de la heurística a la primera iteració (&gt;= 1)
+     * @param decrement quant es redueix el pes a cada iteració
+     */
+    public CercaARAStar(boolean usarLNT, Heuristica heur, long pressupostMs, double pesInicial, double decrement) {
+        super(usarLNT);
+        this.heur = heur;
+        this.pressupostMs = pressupostMs;
+        this.pesInicial = Math.max(1.0, pesInicial);
+        this.decrement = decrement;
+    }
+
+    private static final class Entrada {
+        final int id;
+        final Node node;
+        final double clau;
+
+        Entrada(int id, Node node, double clau) {
+            this.id = id;
+            this.node = node;
+            this.clau = clau;
+        }
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        limitTemps = System.currentTimeMillis() + pressupostMs;
+        index = new TaulaEstats(inicial.getParaulesClau());
+        nodes = new ArrayList<>();
+        situacio = new byte[1024];
+        incons = new ArrayList<>();
+        millorMeta = null;
+
+        double w = pesInicial;
+        oberts = novaCua();
+        int arrel = alta(new Node(inicial, null, null, 0, 0, heur.h(inicial)));
+        obre(arrel, w);
+        rc.incNodesExplorats();
+
+        while (true) {
+            boolean complet = milloraCami(w, rc);
+            long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            rc.updateMemoria((int) memoriaActual);
+            if (millorMeta != null) {
+                rc.setCami(cami(millorMeta));
+                rc.setFitaSubOptimalitat(fita(w));
+            }
+            if (!complet || rc.getFitaSubOptimalitat() <= 1.0 || w <= 1.0) break;
+
+            // Iteració següent: pes més petit, INCONS -> OBERTS i reordenar
+            w = Math.max(1.0, w - decrement);
+            PriorityQueue<Entrada> vella = oberts;
+            oberts = novaCua();
+            for (Entrada e : vella) {
+                if (situacio[e.id] == OBERT && nodes.get(e.id) == e.node) obre(e.id, w);
+            }
+            for (int id : incons) obre(id, w);
+            incons.clear();
+            for (int id = 0; id < nodes.size(); id++) if (situacio[id] == TANCAT) situacio[id] = 0;
+        }
+
+        index.buida();
+        nodes = null;
+        oberts = null;
+        millorMeta = null;
+    }
+
+    private static PriorityQueue<Entrada> novaCua() {
+        return new PriorityQueue<>((a, b) -> a.clau != b.clau ? Double.compare(a.clau, b.clau)
+                                                              : Integer.compare(b.node.g, a.node.g));
+    }
+
+    /**
+     * Expandeix en ordre de g + w*h fins que cap node obert pot millorar la solució actual.
+     * @return false si s'ha acabat el temps
+     */
+    private boolean milloraCami(double w, ResultatCerca rc) {
+        Moviment[] accions = new Moviment[nodes.get(0).estat.getMaxAccions()];
+        int iteracions = 0;
+        while (!oberts.isEmpty()) {
+            Entrada e = oberts.peek();
+            if (millorMeta != null && e.clau >= millorMeta.g) return true;
+            oberts.poll();
+            Node actual = nodes.get(e.id);
+            if (actual != e.node || situacio[e.id] != OBERT) continue;  // entrada obsoleta
+            situacio[e.id] = TANCAT;
+
+            if (++iteracions % INTERVAL_RELLOTGE == 0) {
+                if (System.currentTimeMillis() > limitTemps) return false;
+                long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+                rc.updateMemoria((int) memoriaActual);
+            }
+            rc.incNodesExplorats();
+
+            if (actual.estat.esMeta()) {
+                if (millorMeta == null || actual.g < millorMeta.g) millorMeta = actual;
+                continue;
+            }
+
+            int numAccions = actual.estat.accionsPossibles(accions, 0);
+            for (int i = 0; i < numAccions; i++) {
+                Mapa nouEstat = actual.estat.mou(accions[i]);
+                int g = actual.g + 1;
+                int id = index.get(nouEstat, -1);
+                if (id >= 0 && nodes.get(id).g <= g) {
+                    rc.incNodesTallats();
+                    continue;
+                }
+                int h = id >= 0 ? nodes.get(id).h : heur.h(nouEstat);
+                Node fill = new Node(nouEstat, actual, accions[i], actual.depth + 1, g, h);
+                if (id < 0) {
+                    id = alta(fill);
+                } else {
+                    nodes.set(id, fill);
+                }
+                if (situacio[id] == TANCAT) {
+                    situacio[id] = INCONSISTENT;
+                    incons.add(id);
+                } else if (situacio[id] != INCONSISTENT) {
+                    obre(id, w);
+                }
+            }
+        }
+        return true;
+    }
+
+    private int alta(Node n) {
+        int id = nodes.size();
+        nodes.add(n);
+        index.posa(n.estat, id);
+        if (id == situacio.length) situacio = Arrays.copyOf(situacio, id * 2);
+        return id;
+    }
+
+    private void obre(int id, double w) {
+        Node n = nodes.get(id);
+        situacio[id] = OBERT;
+        oberts.add(new Entrada(id, n, n.g + w * n.h));
+    }
+
+    /**
+     * Fita de subòptimalitat: min(w, cost / mínim de g + h entre oberts i INCONS)
+     */
+    private double fita(double w) {
+        int minim = millorMeta.g;
+        for (Entrada e : oberts) {
+            if (situacio[e.id] == OBERT && nodes.get(e.id) == e.node) minim = Math.min(minim, e.node.f());
+        }
+        for (int id : incons) minim = Math.min(minim, nodes.get(id).f());
+        if (minim <= 0) return w;
+        return Math.max(1.0, Math.min(w, (double) millorMeta.g / minim));
+    }
+
+    private static List<Moviment> cami(Node meta) {
+        List<Moviment> cami = new ArrayList<>();
+        for (Node n = meta; n.pare != null; n = n.pare) cami.add(n.accio);
+        Collections.reverse(cami);
+        return cami;
+    }
+}
@@ -1,61 +1,95 @@
 package edu.epsevg.prop.ac1.cerca;
 
 import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaFills;
 import edu.epsevg.prop.ac1.model.*;
 import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.ConjuntEstats;
+import edu.epsevg.prop.ac1.utils.CuaCubetes;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
 
 import java.util.*;
 
 /**
  * Implementació de l'algoritme A* (A Estrella), cerca informada amb heurística.
- * Utilitza una PriorityQueue per prioritzar nodes per f = g (cost real) + h (heurística estimada).
+ * Prioritza els nodes per f = g (cost real) + h (heurística estimada) amb una CuaCubetes:
+ * com que f i g són enters, afegir i treure són O(1) amortitzat. A igualtat de f es treu
+ * primer el node de g més gran. La h es calcula un sol cop per node generat i es desa al Node.
+ *
+ * Mode EPEA* (Enhanced Partial Expansion A*, expansioParcial=true): cada cop que s'extreu
+ * un node amb valor F només s'afegeixen a la frontera els fills amb f == F (o, en una
+ * reexpansió, amb f dins de (F anterior, F]); si n'hi ha amb f més gran, el node es torna
+ * a posar a la cua amb la f més petita d'aquests. La funció de selecció d'operadors de
+ * l'heurística (HeuristicaFills) dona la h de cada fill sense generar-lo, i només es creen
+ * els estats dels fills que entren a la frontera. Si l'heurística no en té, o si per aquell
+ * estat no la sap calcular, el node s'expandeix sencer com a A*.
  */
 public class CercaAStar extends Cerca {
 
     private final Heuristica heur;
+    private final boolean expansioParcial;
 
     public CercaAStar(boolean usarLNT, Heuristica heur) { 
-        super(usarLNT); 
-        this.heur = heur; 
+        this(usarLNT, heur, false);
+    }
+
+    /**
+     * @param expansioParcial true per fer servir EPEA*
+     */
+    public CercaAStar(boolean usarLNT, Heuristica heur, boolean expansioParcial) {
+        super(usarLNT);
+        this.heur = heur;
+        this.expansioParcial = expansioParcial;
+    }
+
+    /**
+     * Node tornat a la cua per EPEA*: té com a h la diferència fins al nou valor F, i
+     * recorda el valor amb què es va expandir l'últim cop.
+     */
+    private static final class NodeReencuat extends Node {
+        final int fAnterior;
+
+        NodeReencuat(Node n, int fAnterior, int fNou) {
+            super(n.estat, n.pare, n.accio, n.depth, n.g, fNou - n.g);
+            this.fAnterior = fAnterior;
+        }
     }
 
     @Override
     public void ferCerca(Mapa inicial, ResultatCerca rc) {
-        // Frontera: PriorityQueue ordenada per f = g + h (min-heap, menor f primer)
-        PriorityQueue<Node> frontera = new PriorityQueue<>(
-            (n1, n2) -> {
-                double f1 = n1.g + heur.h(n1.estat);
-                double f2 = n2.g + heur.h(n2.estat);
-                return Double.compare(f1, f2);  // Tie-breaking: menor g si f igual
-            }
-        );
+        if (esInsoluble(inicial)) return;
+        // Frontera: cua de cubetes per f = g + h (menor f primer; a igual f, major g)
+        CuaCubetes<Node> frontera = new CuaCubetes<>();
 
         // Conjunt per control de cicles configurable
-        Set<Mapa> visitatsSimple = null;
-        Map<Mapa, Integer> lnt = null;
+        ConjuntEstats visitatsSimple = null;
+        TaulaEstats lnt = null;
         if (!usarLNT) {
-            visitatsSimple = new HashSet<>();  // Control simple global
+            visitatsSimple = new ConjuntEstats(inicial.getParaulesClau());  // Control simple global
         } else {
-            lnt = new HashMap<>();  // LNT: estat -> profunditat mínima
+            lnt = new TaulaEstats(inicial.getParaulesClau());  // LNT: estat -> profunditat mínima
         }
 
         // Node inicial: depth=0, g=0
-        Node nodeInicial = new Node(inicial, null, null, 0, 0);
-        frontera.add(nodeInicial);
+        Node nodeInicial = new Node(inicial, null, null, 0, 0, heur.h(inicial));
+        frontera.afegeix(nodeInicial, nodeInicial.f(), nodeInicial.g);
 
         // Marcar inicial
         if (!usarLNT) {
-            visitatsSimple.add(inicial);
+            visitatsSimple.afegeix(inicial);
         } else {
-            lnt.put(inicial, 0);
+            lnt.posa(inicial, 0);
         }
         rc.incNodesExplorats();  // Node inicial explorat
 
         boolean trobat = false;
         Node nodeFinal = null;
+        Moviment[] accions = new Moviment[inicial.getMaxAccions()];
+        int[] hFills = new int[inicial.getMaxAccions()];
+        HeuristicaFills seleccio = expansioParcial && heur instanceof HeuristicaFills ? (HeuristicaFills) heur : null;
 
-        while (!frontera.isEmpty() && !trobat) {
-            Node actual = frontera.poll();
+        while (!frontera.esBuida() && !trobat) {
+            Node actual = frontera.treu();
             rc.incNodesExplorats();  // Cada node extret s'explora
 
             // Check si és meta
@@ -65,32 +99,48 @@ public class CercaAStar extends Cerca {
                 break;
             }
 
-            // Generar successors
-            List<Moviment> accions = actual.estat.getAccionsPossibles();
-            for (Moviment accio : accions) {
+            // Generar successors (en EPEA*, només els de la finestra de f que toca)
+            int fActual = actual.f();
+            int fAnterior = actual instanceof NodeReencuat ? ((NodeReencuat) actual).fAnterior : Integer.MIN_VALUE;
+            int fSeguent = Integer.MAX_VALUE;
+            int numAccions = actual.estat.accionsPossibles(accions, 0);
+            boolean ambSeleccio = seleccio != null && seleccio.hFills(actual.estat, accions, numAccions, hFills);
+            for (int i = 0; i < numAccions; i++) {
+                Moviment accio = accions[i];
+                int hFill = -1;
+                if (ambSeleccio) {
+                    // Funció de selecció d'operadors: només es generen els fills de la finestra
+                    hFill = hFills[i];
+                    int fFill = actual.g + 1 + hFill;
+                    if (fFill <= fAnterior) continue;  // ja generat en una expansió anterior
+                    if (fFill > fActual) {
+                        fSeguent = Math.min(fSeguent, fFill);
+                        continue;
+                    }
+                }
                 Mapa nouEstat = actual.estat.mou(accio);
-                Node successor = new Node(nouEstat, actual, accio, actual.depth + 1, actual.g + 1);
 
                 // Control de cicles configurable
                 boolean descartat = false;
                 if (!usarLNT) {
-                    if (visitatsSimple.contains(nouEstat)) {
+                    if (!visitatsSimple.afegeix(nouEstat)) {
                         rc.incNodesTallats();  // Duplicat: tallat
                         descartat = true;
                     } else {
-                        visitatsSimple.add(nouEstat);
-                        frontera.add(successor);
+                        Node successor = new Node(nouEstat, actual, accio, actual.depth + 1, actual.g + 1, hFill >= 0 ? hFill : heur.h(nouEstat));
+                        frontera.afegeix(successor, successor.f(), successor.g);
                     }
                 } else {
                     // LNT: si ja visitat a menor o igual profunditat, tallar (però permet reobrir si millor)
-                    Integer minProf = lnt.get(nouEstat);
-                    if (minProf != null && successor.depth >= minProf) {
+                    int minProf = lnt.get(nouEstat, Integer.MAX_VALUE);
+                    if (actual.depth + 1 >= minProf) {
                         rc.incNodesTallats();
                         descartat = true;
                     } else {
                         // Actualitzar amb min profunditat (permèt reexpandir si millor)
-                        lnt.put(nouEstat, Math.min(minProf != null ? minProf : Integer.MAX_VALUE, successor.depth));
-                        frontera.add(successor);
+                        lnt.posa(nouEstat, Math.min(minProf, actual.depth + 1));
+                        Node successor = new Node(nouEstat, actual, accio, actual.depth + 1, actual.g + 1, hFill >= 0 ? hFill : heur.h(nouEstat));
+                        frontera.afegeix(successor, successor.f(), successor.g);
                     }
                 }
 
@@ -98,6 +148,9 @@ public class CercaAStar extends Cerca {
                     continue;
                 }
             }
+            if (fSeguent != Integer.MAX_VALUE) {
+                frontera.afegeix(new NodeReencuat(actual, fActual, fSeguent), fSeguent, actual.g);
+            }
 
             // Actualitzar pic de memòria
             long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
@@ -117,8 +170,8 @@ public class CercaAStar extends Cerca {
         }
 
         // Alliberar memòria
-        frontera.clear();
-        if (visitatsSimple != null) visitatsSimple.clear();
-        if (lnt != null) lnt.clear();
+        frontera.buida();
+        if (visitatsSimple != null) visitatsSimple.buida();
+        if (lnt != null) lnt.buida();
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package edu.epsevg.prop.ac1.cerca;
 
 import edu.epsevg.prop.ac1.model.*;
 import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.ConjuntEstats;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
 
 import java.util.*;
 
@@ -9,8 +11,8 @@ import java.util.*;
  * Implementació de l'algoritme BFS (Breadth-First Search) utilitzant Nodes per a l'arbre d'exploració.
  * Explora nivell a nivell, garantint la solució òptima en termes de cost uniforme (cost = 1 per moviment).
  * Control de cicles
- * - Si usarLNT=false: Control simple global amb Set<Mapa> (evita reexpandir qualsevol estat).
- * - Si usarLNT=true: LNT global amb Map<Mapa, Integer> per profunditat mínima visitada.
+ * - Si usarLNT=false: Control simple global amb un ConjuntEstats (evita reexpandir qualsevol estat).
+ * - Si usarLNT=true: LNT global amb una TaulaEstats per profunditat mínima visitada.
  */
 public class CercaBFS extends Cerca {
     public CercaBFS(boolean usarLNT) {
@@ -19,16 +21,17 @@ public class CercaBFS extends Cerca {
 
     @Override
     public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
         // Estructura de la frontera: cua FIFO per BFS
         Queue<Node> frontera = new LinkedList<>();
 
         // Conjunt per control de cicles
-        Set<Mapa> visitatsSimple = null;
-        Map<Mapa, Integer> lnt = null;
+        ConjuntEstats visitatsSimple = null;
+        TaulaEstats lnt = null;
         if (!usarLNT) {
-            visitatsSimple = new HashSet<>();  
+            visitatsSimple = new ConjuntEstats(inicial.getParaulesClau());  
         } else {
-            lnt = new HashMap<>();  
+            lnt = new TaulaEstats(inicial.getParaulesClau());  
         }
 
         // Node inicial: depth=0, g=0 (cost acumulat)
@@ -36,14 +39,15 @@ public class CercaBFS extends Cerca {
         frontera.add(nodeInicial);
 
         if (!usarLNT) {
-            visitatsSimple.add(inicial);
+            visitatsSimple.afegeix(inicial);
         } else {
-            lnt.put(inicial, 0); 
+            lnt.posa(inicial, 0); 
         }
         rc.incNodesExplorats();  
 
         boolean trobat = false;
         Node nodeFinal = null;
+        Moviment[] accions = new Moviment[inicial.getMaxAccions()];
 
         while (!frontera.isEmpty() && !trobat) {
             Node actual = frontera.poll();
@@ -55,27 +59,27 @@ public class CercaBFS extends Cerca {
                 break;
             }
 
-            List<Moviment> accions = actual.estat.getAccionsPossibles();
-            for (Moviment accio : accions) {
+            int numAccions = actual.estat.accionsPossibles(accions, 0);
+            for (int i = 0; i < numAccions; i++) {
+                Moviment accio = accions[i];
                 Mapa nouEstat = actual.estat.mou(accio);
                 Node successor = new Node(nouEstat, actual, accio, actual.depth + 1, actual.g + 1);
 
                 boolean descartat = false;
                 if (!usarLNT) {
-                    if (visitatsSimple.contains(nouEstat)) {
+                    if (!visitatsSimple.afegeix(nouEstat)) {
                         rc.incNodesTallats();
                         descartat = true;
                     } else {
-                        visitatsSimple.add(nouEstat);
                         frontera.add(successor);
                     }
                 } else {
-                    Integer minProf = lnt.get(nouEstat);
-                    if (minProf != null && successor.depth >= minProf) {
+                    int minProf = lnt.get(nouEstat, Integer.MAX_VALUE);
+                    if (successor.depth >= minProf) {
                         rc.incNodesTallats();
                         descartat = true;
                     } else {
-                        lnt.put(nouEstat, Math.min(minProf != null ? minProf : Integer.MAX_VALUE, successor.depth));
+                        lnt.posa(nouEstat, Math.min(minProf, successor.depth));
                         frontera.add(successor);
                     }
                 }
@@ -100,7 +104,7 @@ public class CercaBFS extends Cerca {
         }
 
         frontera.clear();
-        if (visitatsSimple != null) visitatsSimple.clear();
-        if (lnt != null) lnt.clear();
+        if (visitatsSimple != null) visitatsSimple.buida();
+        if (lnt != null) lnt.buida();
     }
 }
\ No newline at end of file
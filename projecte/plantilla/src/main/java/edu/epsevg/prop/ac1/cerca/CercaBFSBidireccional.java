@@ -0,0 +1,183 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+
+/**
+ * BFS bidireccional. Una frontera avança des de l'estat inicial i l'altra recula des del
+ * conjunt de tots els estats meta (Mapa.estatsMeta: algun agent a la sortida, la resta a
+ * qualsevol cel·la lliure, amb qualsevol màscara de claus coherent), generant predecessors
+ * amb Mapa.antecessors. A cada pas s'expandeix sencera la capa més petita de les dues.
+ *
+ * Cada vegada que un estat nou apareix a una banda es mira si l'altra ja l'ha descobert;
+ * la millor trobada és òptima en el moment que millor &lt;= profF + profB + 1 (qualsevol
+ * camí més curt hauria de passar per un estat descobert per les dues bandes).
+ *
+ * Els estats de la banda enrere que no es poden generar des de l'inicial (claus que no es
+ * poden aconseguir, agents en un component on no poden arribar: Accessibilitat.esAssolible)
+ * es descarten, tant entre els estats meta com entre els predecessors.
+ *
+ * Si hi ha més de MAX_METES estats meta es fa un BFS normal. El nombre d'estats meta mesura
+ * l'amplada de la banda enrere (on la resta d'agents poden ser a qualsevol cel·la): si és
+ * gran, la banda enrere recorre molts estats que la cerca endavant no toca mai, i quan la
+ * banda endavant s'estreny perquè ja ha cobert l'espai assolible, aquest esforç es perd.
+ * Com que les dues cerques van per capes, la LNT i el control simple de visitats
+ * descarten exactament els mateixos estats: usarLNT només es fa servir en el BFS.
+ */
+public class CercaBFSBidireccional extends Cerca {
+    /**
+     * Nombre màxim d'estats meta (abans de descartar els no assolibles) per fer la cerca
+     * bidireccional
+     */
+    public static final int MAX_METES = 1 << 12;
+
+    public CercaBFSBidireccional(boolean usarLNT) {
+        super(usarLNT);
+    }
+
+    /**
+     * Una de les dues bandes de la cerca: tots els nodes descoberts, l'índex estat -&gt; node
+     * i la capa pendent d'expandir. A la banda enrere, node.pare és l'estat següent cap a la
+     * meta i node.accio el moviment que hi porta.
+     */
+    private static final class Banda {
+        final List<Node> nodes = new ArrayList<>();
+        final TaulaEstats index;
+        List<Node> capa = new ArrayList<>();
+        int profunditat = 0;
+
+        Banda(int paraules) {
+            index = new TaulaEstats(paraules);
+        }
+
+        /**
+         * @return false si l'estat ja s'havia descobert
+         */
+        boolean afegeix(Node n) {
+            if (index.conte(n.estat)) return false;
+            index.posa(n.estat, nodes.size());
+            nodes.add(n);
+            capa.add(n);
+            return true;
+        }
+
+        Node busca(Mapa estat) {
+            int i = index.get(estat, -1);
+            return i < 0 ? null : nodes.get(i);
+        }
+    }
+
+    private Node millorF, millorB;
+    private int millor;
+    private Mapa inicial;
+    private Accessibilitat accessibilitat;
+    private int clausInicial;
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        // Els antecessors no saben quin ha estat el darrer moviment: sense reducció d'ordre
+        // parcial, perquè els estats de les dues bandes es puguin trobar
+        inicial = inicial.senseReduccioOrdreParcial();
+        List<Mapa> metes = inicial.estatsMeta(MAX_METES);
+        if (metes == null) {
+            new CercaBFS(usarLNT).ferCerca(inicial, rc);
+            return;
+        }
+        rc.incNodesExplorats();
+        if (inicial.esMeta()) {
+            rc.setCami(new ArrayList<>());
+            return;
+        }
+
+        this.inicial = inicial;
+        accessibilitat = Accessibilitat.de(inicial.getTauler());
+        clausInicial = accessibilitat.clausAssolibles(inicial);
+        Banda endavant = new Banda(inicial.getParaulesClau());
+        Banda enrere = new Banda(inicial.getParaulesClau());
+        millorF = millorB = null;
+        millor = Integer.MAX_VALUE;
+
+        endavant.afegeix(new Node(inicial, null, null, 0, 0));
+        for (Mapa meta : metes) {
+            if (!accessibilitat.esAssolible(inicial, clausInicial, meta)) continue;
+            Node n = new Node(meta, null, null, 0, 0);
+            enrere.afegeix(n);
+            trobada(endavant.busca(meta), n);
+        }
+
+        Moviment[] accions = new Moviment[inicial.getMaxAntecessors()];
+        Mapa[] estats = new Mapa[inicial.getMaxAntecessors()];
+
+        while (!endavant.capa.isEmpty() && !enrere.capa.isEmpty()
+                && millor > endavant.profunditat + enrere.profunditat + 1) {
+            if (endavant.capa.size() <= enrere.capa.size()) {
+                expandeix(endavant, enrere, true, estats, accions, rc);
+            } else {
+                expandeix(enrere, endavant, false, estats, accions, rc);
+            }
+        }
+
+        if (millorF != null) {
+            List<Moviment> cami = new ArrayList<>();
+            for (Node n = millorF; n.pare != null; n = n.pare) cami.add(n.accio);
+            Collections.reverse(cami);
+            for (Node n = millorB; n.pare != null; n = n.pare) cami.add(n.accio);
+            rc.setCami(cami);
+        }
+        millorF = millorB = null;
+        this.inicial = null;
+    }
+
+    /**
+     * Expandeix la capa pendent de la banda b i en deixa la següent com a nova capa.
+     */
+    private void expandeix(Banda b, Banda altra, boolean esEndavant,
+                           Mapa[] estats, Moviment[] accions, ResultatCerca rc) {
+        List<Node> capa = b.capa;
+        b.capa = new ArrayList<>();
+        b.profunditat++;
+        for (Node actual : capa) {
+            rc.incNodesExplorats();
+            int num;
+            if (esEndavant) {
+                num = actual.estat.accionsPossibles(accions, 0);
+                for (int i = 0; i < num; i++) estats[i] = actual.estat.mou(accions[i]);
+            } else {
+                num = actual.estat.antecessors(estats, accions, 0);
+            }
+            for (int i = 0; i < num; i++) {
+                if (!esEndavant && !accessibilitat.esAssolible(inicial, clausInicial, estats[i])) {
+                    rc.incNodesTallats();
+                    continue;
+                }
+                Node successor = new Node(estats[i], actual, accions[i], actual.depth + 1, actual.g + 1);
+                if (!b.afegeix(successor)) {
+                    rc.incNodesTallats();
+                    continue;
+                }
+                Node creuat = altra.busca(estats[i]);
+                if (esEndavant) trobada(successor, creuat);
+                else trobada(creuat, successor);
+            }
+
+            long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            rc.updateMemoria((int) memoriaActual);
+        }
+    }
+
+    /**
+     * Registra una trobada entre les dues fronteres si millora la millor fins ara.
+     */
+    private void trobada(Node f, Node b) {
+        if (f == null || b == null) return;
+        if (f.depth + b.depth < millor) {
+            millor = f.depth + b.depth;
+            millorF = f;
+            millorB = b;
+        }
+    }
+}
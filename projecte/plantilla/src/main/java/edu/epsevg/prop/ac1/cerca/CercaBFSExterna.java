@@ -0,0 +1,180 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.FitxersEstats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * BFS en memòria externa, amb detecció de duplicats diferida: cada capa de profunditat és
+ * un fitxer binari de claus empaquetades (veure FitxersEstats), ordenat i sense repetits.
+ *
+ * Per expandir la capa d es llegeix el seu fitxer seqüencialment, i els successors es
+ * van acumulant en un buffer de maxEstats claus; quan s'omple, s'ordena i s'escriu com a
+ * fitxer parcial. En acabar la capa, els parcials es fusionen i se'ls resten tots els
+ * estats ja visitats (un fitxer ordenat amb la unió de les capes anteriors, que s'actualitza
+ * per fusió): el resultat és la capa d+1. Amb les claus que només creixen el graf no és
+ * simètric, i per això es resten totes les capes i no només les dues últimes.
+ *
+ * El camí es reconstrueix enrere des de la meta: a cada capa es busca (cerca binària al
+ * fitxer de la capa anterior) un dels predecessors de l'estat (Mapa.antecessors).
+ *
+ * La memòria és O(maxEstats) independentment de la mida de l'espai d'estats; el disc és
+ * O(estats visitats). Els fitxers van a un directori temporal que s'esborra en acabar.
+ * Sempre es fa la detecció de duplicats completa, i per tant usarLNT no hi té efecte.
+ */
+public class CercaBFSExterna extends Cerca {
+    public static final int ESTATS_MEMORIA_PER_DEFECTE = 1 << 20;
+
+    private final int maxEstats;
+    private final Path directori;
+
+    /**
+     * BFS extern amb un buffer de 2^20 estats al directori temporal del sistema
+     */
+    public CercaBFSExterna(boolean usarLNT) {
+        this(usarLNT, ESTATS_MEMORIA_PER_DEFECTE, null);
+    }
+
+    /**
+     * @param maxEstats estats que es guarden en memòria abans d'escriure un fitxer parcial
+     * @param directori on crear el directori de treball (null pel temporal del sistema)
+     */
+    public CercaBFSExterna(boolean usarLNT, int maxEstats, Path directori) {
+        super(usarLNT);
+        this.maxEstats = maxEstats;
+        this.directori = directori;
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        // Les claus del disc són només la posició (veure Mapa.deClau)
+        inicial = inicial.senseReduccioOrdreParcial();
+        rc.incNodesExplorats();
+        if (inicial.esMeta()) {
+            rc.setCami(new ArrayList<>());
+            return;
+        }
+        Path treball = null;
+        try {
+            treball = directori == null ? Files.createTempDirectory("bfs-externa")
+                                        : Files.createTempDirectory(directori, "bfs-externa");
+            cerca(inicial, rc, treball);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (treball != null) esborra(treball);
+        }
+    }
+
+    private void cerca(Mapa inicial, ResultatCerca rc, Path treball) throws IOException {
+        int w = inicial.getParaulesClau();
+        long[] buf = new long[maxEstats * w];
+        Moviment[] accions = new Moviment[inicial.getMaxAccions()];
+
+        List<Path> capes = new ArrayList<>();
+        inicial.escriuClau(buf, 0);
+        capes.add(treball.resolve("capa0"));
+        FitxersEstats.escriuOrdenat(buf, 1, w, capes.get(0));
+        Path visitats = treball.resolve("visitats0");
+        Files.copy(capes.get(0), visitats);
+
+        for (int d = 0; ; d++) {
+            List<Path> parcials = new ArrayList<>();
+            int n = 0;
+            long generats = 0;
+            Mapa meta = null;
+            try (FitxersEstats.Lector capa = new FitxersEstats.Lector(capes.get(d), w)) {
+                while (meta == null && capa.avanca()) {
+                    Mapa estat = inicial.deClau(capa.actual, 0);
+                    rc.incNodesExplorats();
+                    int num = estat.accionsPossibles(accions, 0);
+                    for (int i = 0; i < num; i++) {
+                        Mapa fill = estat.mou(accions[i]);
+                        if (fill.esMeta()) {
+                            meta = fill;
+                            break;
+                        }
+                        fill.escriuClau(buf, n * w);
+                        generats++;
+                        if (++n == maxEstats) {
+                            parcials.add(escriuParcial(buf, n, w, treball, parcials.size()));
+                            n = 0;
+                        }
+                    }
+                }
+            }
+            // Al final de la capa el buffer és al punt més ple
+            long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            rc.updateMemoria((int) memoriaActual);
+            if (meta != null) {
+                rc.setCami(reconstrueix(meta, capes, w));
+                return;
+            }
+            parcials.add(escriuParcial(buf, n, w, treball, parcials.size()));
+
+            // Capa següent: fusió dels parcials menys els estats ja visitats
+            Path candidats = treball.resolve("candidats");
+            FitxersEstats.fusiona(parcials, w, candidats);
+            for (Path p : parcials) Files.delete(p);
+            Path seguent = treball.resolve("capa" + (d + 1));
+            long nous = FitxersEstats.resta(candidats, visitats, w, seguent);
+            Files.delete(candidats);
+            rc.incNodesTallats((int) Math.min(Integer.MAX_VALUE, generats - nous));
+            capes.add(seguent);
+            if (nous == 0) return;  // espai d'estats esgotat sense meta
+
+            Path nouVisitats = treball.resolve("visitats" + (d + 1));
+            FitxersEstats.fusiona(Arrays.asList(visitats, seguent), w, nouVisitats);
+            Files.delete(visitats);
+            visitats = nouVisitats;
+        }
+    }
+
+    private static Path escriuParcial(long[] buf, int n, int w, Path treball, int i) throws IOException {
+        Path p = treball.resolve("parcial" + i);
+        FitxersEstats.escriuOrdenat(buf, n, w, p);
+        return p;
+    }
+
+    /**
+     * Camí enrere: la meta és a la capa capes.size(), i per cada capa es busca al fitxer de
+     * l'anterior un predecessor de l'estat actual
+     */
+    private static List<Moviment> reconstrueix(Mapa meta, List<Path> capes, int w) throws IOException {
+        List<Moviment> cami = new ArrayList<>();
+        Mapa[] estats = new Mapa[meta.getMaxAntecessors()];
+        Moviment[] accions = new Moviment[estats.length];
+        long[] clau = new long[w];
+        Mapa actual = meta;
+        for (int d = capes.size() - 1; d >= 0; d--) {
+            int num = actual.antecessors(estats, accions, 0);
+            int trobat = -1;
+            for (int i = 0; i < num && trobat < 0; i++) {
+                estats[i].escriuClau(clau, 0);
+                if (FitxersEstats.conte(capes.get(d), w, clau)) trobat = i;
+            }
+            if (trobat < 0) throw new IllegalStateException("No es troba el predecessor a la capa " + d);
+            cami.add(accions[trobat]);
+            actual = estats[trobat];
+        }
+        Collections.reverse(cami);
+        return cami;
+    }
+
+    private static void esborra(Path treball) {
+        try (Stream<Path> fitxers = Files.list(treball)) {
+            for (Path p : (Iterable<Path>) fitxers::iterator) Files.deleteIfExists(p);
+            Files.deleteIfExists(treball);
+        } catch (IOException e) {
+            // el directori és temporal: si no es pot esborrar, es deixa
+        }
+    }
+}
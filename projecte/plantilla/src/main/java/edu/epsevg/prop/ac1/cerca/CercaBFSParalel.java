@@ -0,0 +1,167 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * BFS síncron per capes: cada capa de profunditat s'expandeix en paral·lel en un
+ * ForkJoinPool, repartida en trossos contigus.
+ *
+ * Els visitats es guarden en una taula repartida en fragments (TaulaEstats), cadascun amb
+ * el seu propi bloqueig; no hi ha cap bloqueig global. Per obtenir exactament els mateixos
+ * resultats que CercaBFS, cada successor porta un número de seqüència
+ * (índex del pare a la capa * maxAccions + índex de l'acció), que és l'ordre en què el BFS
+ * seqüencial l'hauria generat. Quan dos fils generen el mateix estat nou, guanya el de
+ * seqüència més petita, que és el que el BFS seqüencial hauria posat a la cua. La capa
+ * següent és la llista de guanyadors en ordre de seqüència, i per tant el camí és el mateix.
+ *
+ * Els comptadors també coincideixen: els tallats d'una capa són els successors generats
+ * menys els estats nous, independentment de l'ordre. A la capa on hi ha la meta només
+ * s'expandeixen els nodes anteriors al primer node meta, igual que ho faria la cua FIFO.
+ * Per la mateixa raó que a CercaBFS, la LNT i el control simple descarten els mateixos
+ * estats en un BFS per capes.
+ */
+public class CercaBFSParalel extends Cerca {
+    private static final int TANCAT = -1;           // estat d'una capa anterior
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    private final int fils;
+
+    // Estat de la cerca en curs
+    private TaulaEstats[] fragments;
+    private int mascaraFragments;
+    private Node[] candidats;                      // candidats[seq] = node guanyador provisional
+
+    /**
+     * Cerca paral·lela amb tants fils com processadors disponibles
+     */
+    public CercaBFSParalel(boolean usarLNT) {
+        this(usarLNT, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param fils nombre de fils del ForkJoinPool
+     */
+    public CercaBFSParalel(boolean usarLNT, int fils) {
+        super(usarLNT);
+        this.fils = Math.max(1, fils);
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        int numFragments = Integer.highestOneBit(fils * 16 - 1) << 1;
+        fragments = new TaulaEstats[numFragments];
+        for (int i = 0; i < numFragments; i++) fragments[i] = new TaulaEstats(inicial.getParaulesClau());
+        mascaraFragments = numFragments - 1;
+
+        ForkJoinPool pool = new ForkJoinPool(fils);
+        try {
+            cerca(inicial, rc, pool);
+        } finally {
+            pool.shutdown();
+            fragments = null;
+            candidats = null;
+        }
+    }
+
+    private void cerca(Mapa inicial, ResultatCerca rc, ForkJoinPool pool) {
+        int maxAccions = inicial.getMaxAccions();
+        fragment(inicial).posa(inicial, TANCAT);
+        rc.incNodesExplorats();
+
+        Node[] capa = { new Node(inicial, null, null, 0, 0) };
+        while (capa.length > 0) {
+            Node[] actual = capa;
+            int primeraMeta = pool.submit(() -> IntStream.range(0, actual.length).parallel()
+                    .filter(i -> actual[i].estat.esMeta()).findFirst().orElse(-1)).join();
+            int expandir = primeraMeta >= 0 ? primeraMeta : actual.length;
+
+            if ((long) expandir * maxAccions > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Capa massa gran per la cerca paral·lela");
+            }
+            candidats = new Node[expandir * maxAccions];
+
+            // 1) expansió: cada tros reclama els seus successors
+            int tros = Math.max(64, expandir / (fils * 8) + 1);
+            int numTrossos = (expandir + tros - 1) / tros;
+            long generats = pool.submit(() -> IntStream.range(0, numTrossos).parallel()
+                    .mapToLong(t -> expandeix(actual, t * tros, Math.min(expandir, (t + 1) * tros), maxAccions))
+                    .sum()).join();
+
+            // 2) recollida dels guanyadors, en ordre de seqüència, i tancament a la taula
+            Node[] seguent = pool.submit(() -> IntStream.range(0, numTrossos).parallel()
+                    .mapToObj(t -> recull(t * tros * maxAccions, Math.min(expandir, (t + 1) * tros) * maxAccions))
+                    .flatMap(Arrays::stream)
+                    .toArray(Node[]::new)).join();
+
+            rc.incNodesExplorats(primeraMeta >= 0 ? expandir + 1 : expandir);
+            rc.incNodesTallats((int) (generats - seguent.length));
+            long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            rc.updateMemoria((int) memoriaActual);
+
+            if (primeraMeta >= 0) {
+                List<Moviment> cami = new ArrayList<>();
+                for (Node n = actual[primeraMeta]; n.pare != null; n = n.pare) cami.add(n.accio);
+                Collections.reverse(cami);
+                rc.setCami(cami);
+                return;
+            }
+            capa = seguent;
+        }
+    }
+
+    private TaulaEstats fragment(Mapa estat) {
+        return fragments[estat.hashCode() & mascaraFragments];
+    }
+
+    /**
+     * Expandeix capa[desde..fins) i reclama cada successor amb la seva seqüència.
+     * @return el nombre de successors generats
+     */
+    private long expandeix(Node[] capa, int desde, int fins, int maxAccions) {
+        Moviment[] accions = new Moviment[maxAccions];
+        long generats = 0;
+        for (int p = desde; p < fins; p++) {
+            Node pare = capa[p];
+            int num = pare.estat.accionsPossibles(accions, 0);
+            generats += num;
+            for (int i = 0; i < num; i++) {
+                Mapa nouEstat = pare.estat.mou(accions[i]);
+                int seq = p * maxAccions + i;
+                TaulaEstats t = fragment(nouEstat);
+                synchronized (t) {
+                    int anterior = t.get(nouEstat, ABSENT);
+                    if (anterior == ABSENT || anterior > seq) {
+                        if (anterior >= 0) candidats[anterior] = null;
+                        t.posa(nouEstat, seq);
+                        candidats[seq] = new Node(nouEstat, pare, accions[i], pare.depth + 1, pare.g + 1);
+                    }
+                }
+            }
+        }
+        return generats;
+    }
+
+    /**
+     * Recull els guanyadors amb seqüència a [desde, fins), en ordre, i els marca com a tancats.
+     */
+    private Node[] recull(int desde, int fins) {
+        List<Node> res = new ArrayList<>();
+        for (int s = desde; s < fins; s++) {
+            Node n = candidats[s];
+            if (n == null) continue;
+            res.add(n);
+            TaulaEstats t = fragment(n.estat);
+            synchronized (t) {
+                t.posa(n.estat, TANCAT);
+            }
+        }
+        return res.toArray(new Node[0]);
+    }
+}
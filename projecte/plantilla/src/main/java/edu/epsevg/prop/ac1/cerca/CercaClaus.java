@@ -0,0 +1,141 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.CuaCubetes;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+
+/**
+ * A* sobre el graf de macro-moviments entre claus i sortida (veure GrafClaus): cada
+ * successor porta un agent pel camí més curt fins a una clau nova o fins a la sortida, amb
+ * cost igual al nombre de passos. Els estats abstractes són els Mapa on ha acabat cada
+ * macro-moviment, de manera que n'hi ha pocs (un per combinació de claus i posicions
+ * d'arribada). El camí final es desplega a moviments d'una casella.
+ *
+ * Només s'aplica amb un sol agent actiu (no congelat), on el resultat és òptim. Amb
+ * diversos agents, el graf només conté els camins en què els agents van d'un en un entre
+ * punts d'interès, i el millor d'aquests pot ser més llarg que l'òptim (si cal que un
+ * agent s'aparti per deixar passar un altre) sense cap fita coneguda: en aquest cas es fa
+ * un A* sobre l'espai complet amb la mateixa heurística (ferCercaDiversosAgents). Per
+ * això mapC i mapD, amb dos agents, queden fora de l'abast d'aquesta cerca.
+ *
+ * Sempre es guarda la millor g de cada estat abstracte i es reobre si millora (amb
+ * macro-moviments de longitud variable pot passar); usarLNT només es passa a l'A*.
+ */
+public class CercaClaus extends Cerca {
+    private final Heuristica heur;
+
+    public CercaClaus(boolean usarLNT, Heuristica heur) {
+        super(usarLNT);
+        this.heur = heur;
+    }
+
+    /**
+     * Node d'un macro-moviment: l'agent que es mou i la cel·la on arriba
+     */
+    private static final class NodeMacro extends Node {
+        final int agent;
+        final int desti;
+
+        NodeMacro(Mapa estat, Node pare, int agent, int desti, int cost, int h) {
+            super(estat, pare, null, pare.depth + 1, pare.g + cost, h);
+            this.agent = agent;
+            this.desti = desti;
+        }
+    }
+
+    /**
+     * @return el generador de macro-moviments de la cerca (BFS sobre la graella)
+     */
+    protected GrafMacro nouGraf(Mapa inicial) {
+        return new GrafClaus(inicial.getTauler());
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        int actius = 0;
+        for (int a = 0; a < inicial.getNumAgents(); a++) if (!inicial.esCongelat(a)) actius++;
+        if (actius > 1) {
+            ferCercaDiversosAgents(inicial, rc);
+            return;
+        }
+        GrafMacro graf = nouGraf(inicial);
+        Node meta = cercaMacro(inicial, graf, rc);
+        if (meta == null) return;  // amb un sol agent, el graf és exacte: no hi ha solució
+        rc.setCami(desplega(meta, graf));
+    }
+
+    /**
+     * Cerca amb diversos agents actius: A* sobre l'espai complet amb la mateixa heurística
+     */
+    protected void ferCercaDiversosAgents(Mapa inicial, ResultatCerca rc) {
+        new CercaAStar(usarLNT, heur).ferCerca(inicial, rc);
+    }
+
+    /**
+     * A* sobre els macro-moviments del graf des de l'estat inicial
+     * @return el node meta (la seva g és la longitud del camí), o null si no n'hi ha
+     */
+    protected Node cercaMacro(Mapa inicial, GrafMacro graf, ResultatCerca rc) {
+        CuaCubetes<Node> frontera = new CuaCubetes<>();
+        TaulaEstats millorG = new TaulaEstats(inicial.getParaulesClau());
+
+        Node nodeInicial = new Node(inicial, null, null, 0, 0, heur.h(inicial));
+        frontera.afegeix(nodeInicial, nodeInicial.f(), 0);
+        millorG.posa(inicial, 0);
+        rc.incNodesExplorats();
+
+        int[] destins = new int[graf.getMaxDestins(inicial)];
+        int[] costos = new int[destins.length];
+        Node meta = null;
+
+        while (!frontera.esBuida()) {
+            Node actual = frontera.treu();
+            if (actual.g > millorG.get(actual.estat, Integer.MAX_VALUE)) continue;  // obsolet
+            rc.incNodesExplorats();
+
+            if (actual.estat.esMeta()) {
+                meta = actual;
+                break;
+            }
+
+            for (int a = 0; a < actual.estat.getNumAgents(); a++) {
+                if (actual.estat.esCongelat(a)) continue;
+                int num = graf.genera(actual.estat, a, destins, costos, 0);
+                for (int i = 0; i < num; i++) {
+                    Mapa nouEstat = graf.aplica(actual.estat, a, destins[i]);
+                    int g = actual.g + costos[i];
+                    if (g >= millorG.get(nouEstat, Integer.MAX_VALUE)) {
+                        rc.incNodesTallats();
+                        continue;
+                    }
+                    millorG.posa(nouEstat, g);
+                    Node successor = new NodeMacro(nouEstat, actual, a, destins[i], costos[i], heur.h(nouEstat));
+                    frontera.afegeix(successor, successor.f(), successor.g);
+                }
+            }
+
+            long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            rc.updateMemoria((int) memoriaActual);
+        }
+        frontera.buida();
+        millorG.buida();
+        return meta;
+    }
+
+    /**
+     * @return el camí de moviments d'una casella fins al node meta d'una cercaMacro
+     */
+    protected List<Moviment> desplega(Node meta, GrafMacro graf) {
+        List<NodeMacro> macros = new ArrayList<>();
+        for (Node n = meta; n.pare != null; n = n.pare) macros.add((NodeMacro) n);
+        Collections.reverse(macros);
+        List<Moviment> cami = new ArrayList<>();
+        for (NodeMacro n : macros) cami.addAll(graf.desplega(n.pare.estat, n.agent, n.desti));
+        return cami;
+    }
+}
@@ -2,6 +2,8 @@ package edu.epsevg.prop.ac1.cerca;
 
 import edu.epsevg.prop.ac1.model.*;
 import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.ConjuntEstats;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
 
 import java.util.*;
 
@@ -10,7 +12,7 @@ import java.util.*;
  * Explora profundament primer, amb límit de profunditat 50 per evitar bucles infinitos.
  * Control de cicles
  * - Si usarLNT=false: Control local dins de la branca actual (recorregut recursiu cap amunt o set equivalent per estalviar memòria).
- * - Si usarLNT=true: Control global amb LNT (Llista de Nodes Tancats): Mapa<Mapa, Integer> per registrar profunditat mínima visitada.
+ * - Si usarLNT=true: Control global amb LNT (Llista de Nodes Tancats): TaulaEstats per registrar profunditat mínima visitada.
  */
 public class CercaDFS extends Cerca {
     private static final int LIMIT_PROFUNDITAT = 80;  // Límit per evitar explosió recursiva (segons espec)
@@ -21,21 +23,24 @@ public class CercaDFS extends Cerca {
 
     @Override
     public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
 
-        Set<Mapa> camiActual = new HashSet<>(); 
-        Map<Mapa, Integer> lnt = null;  
+        ConjuntEstats camiActual = new ConjuntEstats(inicial.senseReduccioOrdreParcial().getParaulesClau()); 
+        TaulaEstats lnt = null;  
         if (usarLNT) {
-            lnt = new HashMap<>();  
+            lnt = new TaulaEstats(inicial.getParaulesClau());  
         }
 
         // Node inicial: depth=0, g=0
         Node nodeInicial = new Node(inicial, null, null, 0, 0);
         rc.incNodesExplorats();  
 
-        explorar(nodeInicial, rc, camiActual, lnt);
+        // Un tram del buffer per cada nivell de profunditat, compartit per tota la recursió
+        Moviment[] accions = new Moviment[(LIMIT_PROFUNDITAT + 1) * inicial.getMaxAccions()];
+        explorar(nodeInicial, rc, camiActual, lnt, accions);
 
-        camiActual.clear();
-        if (lnt != null) lnt.clear();
+        camiActual.buida();
+        if (lnt != null) lnt.buida();
     }
 
     /**
@@ -44,35 +49,38 @@ public class CercaDFS extends Cerca {
      * @param rc Resultats per actualitzar mètriques
      * @param camiActual Conjunt d'estats en el camí actual (per detectar cicles locals)
      * @param lnt Mapa global per profunditat mínima (si usarLNT=true)
+     * @param accions buffer de moviments; el nivell d fa servir el tram que comença a d*getMaxAccions()
      */
-    private void explorar(Node actual, ResultatCerca rc, Set<Mapa> camiActual, Map<Mapa, Integer> lnt) {
+    private void explorar(Node actual, ResultatCerca rc, ConjuntEstats camiActual, TaulaEstats lnt, Moviment[] accions) {
         if (actual.depth > LIMIT_PROFUNDITAT) {
             return;
         }
 
-        if (!camiActual.add(actual.estat)) {
+        // Els cicles es miren sobre la posició, sense els moviments podats per l'ordre parcial
+        Mapa estatCami = actual.estat.senseReduccioOrdreParcial();
+        if (!camiActual.afegeix(estatCami)) {
             rc.incNodesTallats();  
             return;
         }
 
         // Control global (si usarLNT=true): si ja visitat a menor profunditat, tallar
         if (lnt != null) {
-            Integer minProf = lnt.get(actual.estat);
-            if (minProf != null && actual.depth >= minProf) {
+            int minProf = lnt.get(actual.estat, Integer.MAX_VALUE);
+            if (actual.depth >= minProf) {
                 rc.incNodesTallats(); 
-                camiActual.remove(actual.estat);  
+                camiActual.elimina(estatCami);  
                 return;
             }
             // Actualitzar LNT amb profunditat actual (si millor)
-            lnt.put(actual.estat, Math.min(minProf != null ? minProf : Integer.MAX_VALUE, actual.depth));
+            lnt.posa(actual.estat, Math.min(minProf, actual.depth));
         }
 
         // Comprovar si és meta
         if (actual.estat.esMeta()) {
             List<Moviment> cami = reconstruirCami(actual);
             rc.setCami(cami);
-            camiActual.remove(actual.estat);  
-            if (lnt != null) lnt.remove(actual.estat);  
+            camiActual.elimina(estatCami);  
+            if (lnt != null) lnt.elimina(actual.estat);  
             return;
         }
 
@@ -81,15 +89,17 @@ public class CercaDFS extends Cerca {
         long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
         rc.updateMemoria((int) memoriaActual);
 
-        List<Moviment> accions = actual.estat.getAccionsPossibles();
-        for (Moviment accio : accions) {
+        int offset = actual.depth * actual.estat.getMaxAccions();
+        int numAccions = actual.estat.accionsPossibles(accions, offset);
+        for (int i = offset; i < offset + numAccions; i++) {
+            Moviment accio = accions[i];
             Mapa nouEstat = actual.estat.mou(accio);
             Node successor = new Node(nouEstat, actual, accio, actual.depth + 1, actual.g + 1);
 
-            explorar(successor, rc, camiActual, lnt);
+            explorar(successor, rc, camiActual, lnt, accions);
         }
 
-        camiActual.remove(actual.estat);
+        camiActual.elimina(estatCami);
 
         if (rc.getCami() != null) {
             return;
@@ -0,0 +1,155 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.ConjuntEstats;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+
+/**
+ * DFS (o IDS, si es demana aprofundiment iteratiu) sense recursió, sobre una pila
+ * explícita de vectors reservats d'entrada.
+ *
+ * Hi ha un sol Mapa (una còpia de l'inicial) que es modifica amb Mapa.aplica en baixar
+ * i Mapa.desfes en tornar enrere, de manera que no es crea cap Node ni cap Mapa per nivell.
+ * Per cada nivell d la pila guarda els moviments possibles (al tram del buffer que comença
+ * a d*getMaxAccions()), quin és el següent a provar i el moviment aplicat; el camí
+ * solució és directament la seqüència de moviments aplicats.
+ *
+ * Sense recursió, el límit de profunditat només està limitat per la memòria de la pila
+ * i es pot configurar a milers de nivells. Control de cicles igual que CercaDFS/CercaIDS:
+ * - Si usarLNT=false: Control local dins de la branca actual.
+ * - Si usarLNT=true: LNT amb la profunditat mínima de cada estat.
+ * Sense LNT, cada transposició es torna a cercar sencera: IDS a mapB passa de 8879
+ * expansions a 12,5 milions.
+ * Com a CercaDFS, la cerca s'atura a la primera meta trobada.
+ */
+public class CercaDFSPila extends Cerca {
+    public static final int LIMIT_PER_DEFECTE = 1000;
+
+    private static final int TALLAT = 0;
+    private static final int OBERT = 1;
+    private static final int META = 2;
+
+    private final int limit;
+    private final boolean iteratiu;
+
+    // Pila de la cerca en curs
+    private Moviment[] accions;
+    private int[] numAccions;
+    private int[] seguent;
+    private Moviment[] aplicats;
+    private int maxAccions;
+
+    /**
+     * DFS amb el límit de profunditat per defecte
+     */
+    public CercaDFSPila(boolean usarLNT) {
+        this(usarLNT, LIMIT_PER_DEFECTE, false);
+    }
+
+    /**
+     * @param limit profunditat màxima (en IDS, el límit de la darrera iteració)
+     * @param iteratiu true per fer IDS (límits 1, 2, ... limit), false per un sol DFS
+     */
+    public CercaDFSPila(boolean usarLNT, int limit, boolean iteratiu) {
+        super(usarLNT);
+        this.limit = limit;
+        this.iteratiu = iteratiu;
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        maxAccions = inicial.getMaxAccions();
+        accions = new Moviment[(limit + 1) * maxAccions];
+        numAccions = new int[limit + 1];
+        seguent = new int[limit + 1];
+        aplicats = new Moviment[limit + 1];
+
+        // aplica/desfes no mantenen la reducció d'ordre parcial: es treballa sense
+        Mapa estat = new Mapa(inicial.senseReduccioOrdreParcial());
+        ConjuntEstats camiActual = new ConjuntEstats(estat.getParaulesClau());
+        TaulaEstats lnt = usarLNT ? new TaulaEstats(estat.getParaulesClau()) : null;
+
+        for (int l = iteratiu ? 1 : limit; l <= limit; l++) {
+            rc.incNodesExplorats();
+            int fondaria = explorar(estat, l, camiActual, lnt, rc);
+            if (fondaria >= 0) {
+                rc.setCami(new ArrayList<>(Arrays.asList(aplicats).subList(0, fondaria)));
+                break;
+            }
+            camiActual.buida();
+            if (lnt != null) lnt.buida();
+        }
+        accions = null;
+        aplicats = null;
+    }
+
+    /**
+     * DFS iteratiu fins a la profunditat limitActual. En acabar, estat torna a ser l'inicial.
+     * @return la profunditat de la meta trobada (els moviments són a aplicats[0..]), o -1
+     */
+    private int explorar(Mapa estat, int limitActual, ConjuntEstats camiActual, TaulaEstats lnt, ResultatCerca rc) {
+        int r = entra(estat, 0, camiActual, lnt, rc);
+        if (r == META) return 0;
+        if (r == TALLAT) return -1;
+
+        int d = 0;
+        while (d >= 0) {
+            if (seguent[d] < numAccions[d] && d < limitActual) {
+                Moviment mv = accions[d * maxAccions + seguent[d]++];
+                estat.aplica(mv);
+                aplicats[d] = mv;
+                r = entra(estat, d + 1, camiActual, lnt, rc);
+                if (r == META) {
+                    // deixar l'estat com a l'inici
+                    for (int k = d; k >= 0; k--) estat.desfes(aplicats[k]);
+                    return d + 1;
+                }
+                if (r == OBERT) d++;
+                else estat.desfes(mv);
+            } else {
+                // nivell esgotat: tornar enrere
+                camiActual.elimina(estat);
+                d--;
+                if (d >= 0) estat.desfes(aplicats[d]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Entra a l'estat actual com a nivell d: control de cicles, test de meta i generació
+     * dels moviments del nivell.
+     * @return TALLAT, OBERT (nivell apilat) o META
+     */
+    private int entra(Mapa estat, int d, ConjuntEstats camiActual, TaulaEstats lnt, ResultatCerca rc) {
+        if (!camiActual.afegeix(estat)) {
+            rc.incNodesTallats();
+            return TALLAT;
+        }
+        if (lnt != null) {
+            int minProf = lnt.get(estat, Integer.MAX_VALUE);
+            if (d >= minProf) {
+                rc.incNodesTallats();
+                camiActual.elimina(estat);
+                return TALLAT;
+            }
+            lnt.posa(estat, d);
+        }
+        if (estat.esMeta()) {
+            camiActual.elimina(estat);
+            return META;
+        }
+
+        rc.incNodesExplorats();
+        long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        rc.updateMemoria((int) memoriaActual);
+
+        numAccions[d] = estat.accionsPossibles(accions, d * maxAccions);
+        seguent[d] = 0;
+        return OBERT;
+    }
+}
@@ -0,0 +1,183 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+
+/**
+ * Implementació de Fringe Search: el mateix recorregut per llindars de f que IDA*, però
+ * conservant la frontera entre iteracions en lloc de tornar a començar des de l'arrel.
+ *
+ * La frontera és una sola llista doblement enllaçada sobre vectors (sense objectes per
+ * enllaç). Es recorre de cap a cua: els nodes amb f &gt; llindar es queden a la llista per
+ * la iteració següent ("later") i la resta ("now") s'expandeixen al moment, inserint els
+ * fills just darrere seu perquè es visitin dins la mateixa passada. Quan s'arriba al
+ * final, el llindar passa a ser la f més petita que s'ha deixat per més tard.
+ *
+ * Memòria cau de g: una TaulaEstats estat -&gt; posició del node a la llista. Un fill amb
+ * g més gran o igual que la ja coneguda es talla; si la millora, l'entrada antiga es
+ * treu de la llista i la seva posició queda lliure per al node següent. Les posicions
+ * dels nodes expandits es mantenen, perquè guarden la millor g coneguda de l'estat.
+ * En acabar la cerca s'alliberen tots els vectors.
+ */
+public class CercaFringe extends Cerca {
+    private static final int CAP = -1;
+
+    private final Heuristica heur;
+
+    // Llista enllaçada sobre vectors
+    private Node[] nodes;
+    private int[] fs;
+    private int[] seg;
+    private int[] ant;
+    private boolean[] aLaLlista;
+    private int numNodes;
+    private int cap;
+    private int lliures;  // posicions lliures, enllaçades per seg
+
+    public CercaFringe(boolean usarLNT, Heuristica heur) {
+        super(usarLNT);
+        this.heur = heur;
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        reserva(1 << 12);
+        numNodes = 0;
+        cap = CAP;
+        lliures = CAP;
+        TaulaEstats cache = new TaulaEstats(inicial.getParaulesClau());
+
+        int arrel = nou(new Node(inicial, null, null, 0, 0));
+        inserirDespres(CAP, arrel);
+        cache.posa(inicial, arrel);
+        rc.incNodesExplorats();
+
+        Moviment[] accions = new Moviment[inicial.getMaxAccions()];
+        int llindar = fs[arrel];
+        Node meta = null;
+
+        while (meta == null && cap != CAP) {
+            int seguentLlindar = Integer.MAX_VALUE;
+            for (int i = cap; i != CAP; ) {
+                if (fs[i] > llindar) {
+                    // later: es queda a la llista
+                    seguentLlindar = Math.min(seguentLlindar, fs[i]);
+                    i = seg[i];
+                    continue;
+                }
+                Node actual = nodes[i];
+                if (actual.estat.esMeta()) {
+                    meta = actual;
+                    break;
+                }
+                rc.incNodesExplorats();
+
+                // now: s'expandeix i els fills es visiten just després
+                int despres = i;
+                int numAccions = actual.estat.accionsPossibles(accions, 0);
+                for (int a = 0; a < numAccions; a++) {
+                    Mapa nouEstat = actual.estat.mou(accions[a]);
+                    int g = actual.g + 1;
+                    int conegut = cache.get(nouEstat, CAP);
+                    if (conegut != CAP) {
+                        if (!usarLNT || g >= nodes[conegut].g) {
+                            rc.incNodesTallats();
+                            continue;
+                        }
+                        if (aLaLlista[conegut]) treu(conegut);
+                        allibera(conegut);
+                    }
+                    int fill = nou(new Node(nouEstat, actual, accions[a], actual.depth + 1, g));
+                    cache.posa(nouEstat, fill);
+                    inserirDespres(despres, fill);
+                    despres = fill;
+                }
+                int seguent = seg[i];
+                treu(i);
+                i = seguent;
+
+                long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+                rc.updateMemoria((int) memoriaActual);
+            }
+            llindar = seguentLlindar;
+        }
+
+        if (meta != null) {
+            List<Moviment> cami = new ArrayList<>();
+            for (Node n = meta; n.pare != null; n = n.pare) cami.add(n.accio);
+            Collections.reverse(cami);
+            rc.setCami(cami);
+        }
+        cache.buida();
+        nodes = null;
+        fs = null;
+        seg = null;
+        ant = null;
+        aLaLlista = null;
+    }
+
+    private void reserva(int capacitat) {
+        nodes = new Node[capacitat];
+        fs = new int[capacitat];
+        seg = new int[capacitat];
+        ant = new int[capacitat];
+        aLaLlista = new boolean[capacitat];
+    }
+
+    /**
+     * Dona d'alta el node (encara fora de la llista) i en calcula la f
+     * @return la seva posició
+     */
+    private int nou(Node n) {
+        if (lliures != CAP) {
+            int i = lliures;
+            lliures = seg[i];
+            nodes[i] = n;
+            fs[i] = n.g + heur.h(n.estat);
+            return i;
+        }
+        if (numNodes == nodes.length) {
+            int c = nodes.length * 2;
+            nodes = Arrays.copyOf(nodes, c);
+            fs = Arrays.copyOf(fs, c);
+            seg = Arrays.copyOf(seg, c);
+            ant = Arrays.copyOf(ant, c);
+            aLaLlista = Arrays.copyOf(aLaLlista, c);
+        }
+        nodes[numNodes] = n;
+        fs[numNodes] = n.g + heur.h(n.estat);
+        return numNodes++;
+    }
+
+    /**
+     * Insereix el node i darrere de p (CAP per inserir-lo al principi)
+     */
+    private void inserirDespres(int p, int i) {
+        int s = p == CAP ? cap : seg[p];
+        ant[i] = p;
+        seg[i] = s;
+        if (p == CAP) cap = i; else seg[p] = i;
+        if (s != CAP) ant[s] = i;
+        aLaLlista[i] = true;
+    }
+
+    /**
+     * Deixa lliure la posició i (ja fora de la llista i de la memòria cau)
+     */
+    private void allibera(int i) {
+        nodes[i] = null;
+        seg[i] = lliures;
+        lliures = i;
+    }
+
+    private void treu(int i) {
+        if (ant[i] == CAP) cap = seg[i]; else seg[ant[i]] = seg[i];
+        if (seg[i] != CAP) ant[seg[i]] = ant[i];
+        aLaLlista[i] = false;
+    }
+}
@@ -0,0 +1,208 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A* paral·lel amb distribució per hash (HDA*). L'espai d'estats es reparteix entre els
+ * fils segons el hash de l'estat: cada fil és l'únic propietari dels seus estats, amb la
+ * seva pròpia llista oberta i la seva taula de millors g, i per tant no cal cap bloqueig.
+ * Els successors s'envien al fil propietari per una bústia sense bloquejos
+ * (ConcurrentLinkedQueue); és el receptor qui els dedupica i en calcula la h.
+ *
+ * Optimalitat: quan un fil extreu una meta, la proposa com a solució si millora la
+ * millor fins ara. La cerca no s'atura aquí: els nodes amb f &lt; millor es continuen
+ * expandint a tots els fils i la resta es descarten en extreure'ls. Amb una heurística
+ * admissible la solució final és òptima.
+ *
+ * Terminació: un sol comptador atòmic de feina pendent, que compta els nodes que són en
+ * una bústia o en una llista oberta. Els fills es compten abans de descomptar el pare,
+ * i per tant el comptador només arriba a 0 quan no queda res per fer a cap fil. Un fil
+ * sense feina s'atura (LockSupport.park) fins que li arriba un node o la feina s'acaba.
+ *
+ * Control de cicles: sempre es guarda la millor g de cada estat, i un estat que arriba
+ * amb una g millor es reobre (les entrades antigues es descarten en treure-les). Els nodes
+ * arriben als propietaris en un ordre que depèn dels fils, i descartar qualsevol estat ja
+ * vist faria que la g que sobreviu (i la longitud del camí) canviés d'una execució a
+ * l'altra. Per això usarLNT no hi té efecte.
+ */
+public class CercaHDAStar extends Cerca {
+    private static final int INTERVAL_MEMORIA = 1024;
+
+    private final Heuristica heur;
+    private final int fils;
+
+    // Estat compartit de la cerca en curs
+    private Treballador[] treballadors;
+    private AtomicLong pendents;
+    private volatile int millorCost;
+    private Node millorMeta;
+
+    /**
+     * A* paral·lel amb tants fils com processadors disponibles
+     */
+    public CercaHDAStar(boolean usarLNT, Heuristica heur) {
+        this(usarLNT, heur, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param fils nombre de fils treballadors
+     */
+    public CercaHDAStar(boolean usarLNT, Heuristica heur, int fils) {
+        super(usarLNT);
+        this.heur = heur;
+        this.fils = Math.max(1, fils);
+    }
+
+    /**
+     * Node de la llista oberta amb la f ja calculada (la h només es calcula un cop)
+     */
+    private static final class Entrada {
+        final Node node;
+        final int f;
+
+        Entrada(Node node, int f) {
+            this.node = node;
+            this.f = f;
+        }
+    }
+
+    private final class Treballador extends Thread {
+        final ConcurrentLinkedQueue<Node> bustia = new ConcurrentLinkedQueue<>();
+        final PriorityQueue<Entrada> oberts = new PriorityQueue<>(
+            (e1, e2) -> e1.f != e2.f ? Integer.compare(e1.f, e2.f) : Integer.compare(e2.node.g, e1.node.g));
+        final TaulaEstats millorG;
+        final Moviment[] accions;
+        int explorats, tallats, memoriaPic;
+
+        Treballador(Mapa inicial) {
+            millorG = new TaulaEstats(inicial.getParaulesClau());
+            accions = new Moviment[inicial.getMaxAccions()];
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Node rebut;
+                while ((rebut = bustia.poll()) != null) rep(rebut);
+
+                Entrada e = oberts.poll();
+                if (e == null) {
+                    if (pendents.get() == 0 || isInterrupted()) return;
+                    // Si arriba un node entre el poll i el park, el permís ja hi és
+                    if (bustia.isEmpty()) LockSupport.park(this);
+                    continue;
+                }
+                if (e.f >= millorCost || e.node.g > millorG.get(e.node.estat, Integer.MAX_VALUE)) {
+                    acaba();  // fora de la cota o obsolet
+                    continue;
+                }
+                expandeix(e.node);
+                acaba();
+            }
+        }
+
+        /**
+         * Dedupica un node rebut i, si és nou o millora la g guardada, l'afegeix als oberts.
+         */
+        private void rep(Node n) {
+            if (n.g >= millorG.get(n.estat, Integer.MAX_VALUE)) {
+                tallats++;
+                acaba();
+                return;
+            }
+            millorG.posa(n.estat, n.g);
+            oberts.add(new Entrada(n, n.g + heur.h(n.estat)));
+        }
+
+        private void expandeix(Node actual) {
+            explorats++;
+            if (actual.estat.esMeta()) {
+                proposa(actual);
+                return;
+            }
+            int numAccions = actual.estat.accionsPossibles(accions, 0);
+            for (int i = 0; i < numAccions; i++) {
+                Mapa nouEstat = actual.estat.mou(accions[i]);
+                envia(new Node(nouEstat, actual, accions[i], actual.depth + 1, actual.g + 1));
+            }
+            if (explorats % INTERVAL_MEMORIA == 0) {
+                long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+                memoriaPic = Math.max(memoriaPic, (int) memoriaActual);
+            }
+        }
+    }
+
+    private void envia(Node n) {
+        pendents.incrementAndGet();
+        Treballador t = treballadors[propietari(n.estat)];
+        t.bustia.add(n);
+        LockSupport.unpark(t);
+    }
+
+    /**
+     * Descompta un node de la feina pendent; si era l'últim, desperta tots els fils perquè acabin
+     */
+    private void acaba() {
+        if (pendents.decrementAndGet() == 0) {
+            for (Treballador t : treballadors) LockSupport.unpark(t);
+        }
+    }
+
+    private int propietari(Mapa estat) {
+        return Math.floorMod(estat.hashCode() * 0x9E3779B9, fils);
+    }
+
+    private synchronized void proposa(Node meta) {
+        if (meta.g < millorCost) {
+            millorCost = meta.g;
+            millorMeta = meta;
+        }
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        treballadors = new Treballador[fils];
+        for (int i = 0; i < fils; i++) treballadors[i] = new Treballador(inicial);
+        pendents = new AtomicLong();
+        millorCost = Integer.MAX_VALUE;
+        millorMeta = null;
+
+        rc.incNodesExplorats();  // Node inicial
+        envia(new Node(inicial, null, null, 0, 0));
+        for (Treballador t : treballadors) t.start();
+        try {
+            for (Treballador t : treballadors) t.join();
+        } catch (InterruptedException ex) {
+            for (Treballador t : treballadors) t.interrupt();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (Treballador t : treballadors) {
+            rc.incNodesExplorats(t.explorats);
+            rc.incNodesTallats(t.tallats);
+            rc.updateMemoria(t.memoriaPic);
+        }
+        long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        rc.updateMemoria((int) memoriaActual);
+
+        if (millorMeta != null) {
+            List<Moviment> cami = new ArrayList<>();
+            for (Node n = millorMeta; n.pare != null; n = n.pare) cami.add(n.accio);
+            Collections.reverse(cami);
+            rc.setCami(cami);
+        }
+        treballadors = null;
+        millorMeta = null;
+    }
+}
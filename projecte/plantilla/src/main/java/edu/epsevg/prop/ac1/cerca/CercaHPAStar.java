@@ -0,0 +1,45 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.GrafMacro;
+import edu.epsevg.prop.ac1.model.GrafSales;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+
+/**
+ * CercaClaus amb els macro-moviments calculats de forma jeràrquica (HPA*, veure GrafSales):
+ * el mapa es parteix en sales separades per portes, les distàncies dins de cada sala es
+ * precalculen un sol cop per tauler, i cada macro-moviment és una cerca sobre el graf
+ * abstracte de portes, claus i sortida en lloc d'un BFS sobre tota la graella.
+ *
+ * Amb diversos agents actius, la cerca sobre macro-moviments amb els altres agents quiets
+ * dona un camí vàlid però no necessàriament òptim, de longitud U. La mateixa cerca sobre el
+ * graf relaxat (els agents no es bloquegen) dona L, una cota inferior de l'òptim: es
+ * retorna el camí amb la fita de subòptimalitat U / L. Si amb els agents quiets no hi ha
+ * camí (cal que algun s'aparti fora dels punts d'interès), es fa l'A* complet.
+ */
+public class CercaHPAStar extends CercaClaus {
+
+    public CercaHPAStar(boolean usarLNT, Heuristica heur) {
+        super(usarLNT, heur);
+    }
+
+    @Override
+    protected GrafMacro nouGraf(Mapa inicial) {
+        return new GrafSales(inicial.getTauler());
+    }
+
+    @Override
+    protected void ferCercaDiversosAgents(Mapa inicial, ResultatCerca rc) {
+        GrafSales graf = new GrafSales(inicial.getTauler());
+        Node meta = cercaMacro(inicial, graf, rc);
+        if (meta == null) {
+            super.ferCercaDiversosAgents(inicial, rc);
+            return;
+        }
+        // La relaxació té com a mínim els mateixos camins: si n'hi ha un, aquí també
+        Node relaxat = cercaMacro(inicial, new GrafSales(inicial.getTauler(), true), rc);
+        rc.setCami(desplega(meta, graf));
+        rc.setFitaSubOptimalitat(meta.g == relaxat.g ? 1.0 : (double) meta.g / relaxat.g);
+    }
+}
@@ -0,0 +1,169 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.ConjuntEstats;
+import edu.epsevg.prop.ac1.utils.TaulaTransposicions;
+
+import java.util.*;
+
+/**
+ * Implementació d'IDA* (Iterative Deepening A*): DFS amb llindar sobre f = g + h, que a
+ * cada iteració puja fins a la f més petita que ha superat el llindar anterior.
+ *
+ * Per no repetir la feina de les transposicions es fa servir una TaulaTransposicions de
+ * mida fixa, que guarda per cada estat la g amb què s'ha cercat i una cota del cost fins
+ * a la meta (la h recalculada a partir dels fills, sempre admissible):
+ * - Dins d'una iteració, un estat ja cercat amb g menor o igual es talla.
+ * - Entre iteracions, la cota desada substitueix la h si és més gran.
+ * La memòria queda limitada a la mida de la taula més el camí actual.
+ *
+ * explorar calcula dos valors: el llindar següent, que ignora els fills tallats per cicle,
+ * i la cota que es desa, on aquests fills hi compten amb la seva h. La cota no pot sortir
+ * del llindar dels fills: un camí que torna a un ancestre hi quedaria fora, i per un altre
+ * camí (on aquell estat no és ancestre) sobreestimaria el cost real.
+ *
+ * Control de cicles: el camí actual (ConjuntEstats), com a CercaIDS. usarLNT activa la
+ * taula de transposicions; sense LNT només es fa el control de cicles del camí, i les
+ * transposicions es tornen a cercar senceres (a mapB, unes 370000 expansions contra 837).
+ */
+public class CercaIDAStar extends Cerca {
+    public static final int ENTRADES_PER_DEFECTE = 1 << 20;
+    private static final int INFINIT = Integer.MAX_VALUE;
+
+    private final Heuristica heur;
+    private final int entrades;
+
+    // Estat de la cerca en curs
+    private TaulaTransposicions tt;
+    private ConjuntEstats camiActual;
+    private Moviment[][] accions;
+    private int iteracio;
+    private Node meta;
+    private int cotaRetornada;  // segon valor de retorn d'explorar: g + cota admissible
+
+    public CercaIDAStar(boolean usarLNT, Heuristica heur) {
+        this(usarLNT, heur, ENTRADES_PER_DEFECTE);
+    }
+
+    /**
+     * @param entrades nombre d'entrades de la taula de transposicions
+     */
+    public CercaIDAStar(boolean usarLNT, Heuristica heur, int entrades) {
+        super(usarLNT);
+        this.heur = heur;
+        this.entrades = entrades;
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        tt = usarLNT ? new TaulaTransposicions(inicial.getParaulesClau(), entrades) : null;
+        camiActual = new ConjuntEstats(inicial.senseReduccioOrdreParcial().getParaulesClau());
+        accions = new Moviment[16][];
+        meta = null;
+
+        int llindar = heur.h(inicial);
+        for (iteracio = 1; meta == null && llindar != INFINIT; iteracio++) {
+            rc.incNodesExplorats();
+            llindar = explorar(new Node(inicial, null, null, 0, 0), llindar, rc);
+        }
+
+        if (meta != null) {
+            List<Moviment> cami = new ArrayList<>();
+            for (Node n = meta; n.pare != null; n = n.pare) cami.add(n.accio);
+            Collections.reverse(cami);
+            rc.setCami(cami);
+        }
+        tt = null;
+        camiActual = null;
+        accions = null;
+        meta = null;
+    }
+
+    /**
+     * @return cota inferior de l'estat a partir de la heurística i de la taula
+     */
+    private int cota(Mapa estat, int pos) {
+        int h = heur.h(estat);
+        return pos >= 0 ? Math.max(h, tt.getCota(pos)) : h;
+    }
+
+    /**
+     * Cerca en profunditat acotada per llindar. Deixa a cotaRetornada g més una cota
+     * admissible del cost fins a la meta, que no depèn del camí actual.
+     * @return -1 si s'ha trobat la meta; altrament la f més petita que supera el llindar
+     *         dins d'aquest subarbre (INFINIT si no n'hi ha cap)
+     */
+    private int explorar(Node actual, int llindar, ResultatCerca rc) {
+        int pos = tt != null ? tt.busca(actual.estat) : -1;
+        if (pos >= 0 && tt.getIteracio(pos) == iteracio && tt.getG(pos) <= actual.g) {
+            // Transposició: ja s'ha cercat en aquesta iteració des d'una g no pitjor, sense
+            // trobar la meta, i per tant no pot tornar una f dins del llindar
+            rc.incNodesTallats();
+            cotaRetornada = suma(actual.g, tt.getCota(pos));
+            return Math.max(cotaRetornada, llindar + 1);
+        }
+
+        int f = suma(actual.g, cota(actual.estat, pos));
+        cotaRetornada = f;
+        if (f > llindar) return f;
+
+        if (actual.estat.esMeta()) {
+            meta = actual;
+            return -1;
+        }
+
+        // Els cicles es miren sobre la posició, sense els moviments podats per l'ordre parcial
+        Mapa estatCami = actual.estat.senseReduccioOrdreParcial();
+        camiActual.afegeix(estatCami);
+        rc.incNodesExplorats();
+        long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        rc.updateMemoria((int) memoriaActual);
+
+        Moviment[] buffer = buffer(actual.depth, actual.estat.getMaxAccions());
+        int numAccions = actual.estat.accionsPossibles(buffer, 0);
+        int minim = INFINIT;      // f més petita per sobre del llindar, pel llindar següent
+        int minimCota = INFINIT;  // amb les cotes dels fills i els cicles, per la cota que es desa
+        for (int i = 0; i < numAccions; i++) {
+            Mapa nouEstat = actual.estat.mou(buffer[i]);
+            if (camiActual.conte(nouEstat.senseReduccioOrdreParcial())) {
+                // Cicle: no compta pel llindar, però per mantenir la cota admissible per
+                // altres camins el fill hi contribueix amb la seva h
+                rc.incNodesTallats();
+                int valor = suma(actual.g + 1, cota(nouEstat, tt != null ? tt.busca(nouEstat) : -1));
+                minimCota = Math.min(minimCota, valor);
+                continue;
+            }
+            int valor = explorar(new Node(nouEstat, actual, buffer[i], actual.depth + 1, actual.g + 1), llindar, rc);
+            if (valor < 0) {
+                camiActual.elimina(estatCami);
+                return -1;
+            }
+            minim = Math.min(minim, valor);
+            minimCota = Math.min(minimCota, cotaRetornada);
+        }
+        camiActual.elimina(estatCami);
+
+        if (tt != null) tt.desa(actual.estat, actual.g, minimCota == INFINIT ? INFINIT : minimCota - actual.g, iteracio);
+        cotaRetornada = minimCota;
+        return minim;
+    }
+
+    /**
+     * Suma g + cota sense desbordar quan la cota és INFINIT
+     */
+    private static int suma(int g, int cota) {
+        return cota == INFINIT ? INFINIT : g + cota;
+    }
+
+    /**
+     * @return el buffer de moviments del nivell donat (es creen a mesura que cal)
+     */
+    private Moviment[] buffer(int nivell, int mida) {
+        if (nivell >= accions.length) accions = Arrays.copyOf(accions, Math.max(nivell + 1, accions.length * 2));
+        if (accions[nivell] == null) accions[nivell] = new Moviment[mida];
+        return accions[nivell];
+    }
+}
@@ -2,6 +2,8 @@ package edu.epsevg.prop.ac1.cerca;
 
 import edu.epsevg.prop.ac1.model.*;
 import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.ConjuntEstats;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
 
 import java.util.*;
 
@@ -10,7 +12,7 @@ import java.util.*;
  * amb profunditats creixents per trobar la solució òptima amb baixa memòria.
  * Control de cicles configurable (com en DFS):
  * - Si usarLNT=false: Control local dins de la branca actual (set per camí).
- * - Si usarLNT=true: LNT global per iteració (Mapa<Mapa, Integer> per profunditat mínima dins del límit actual).
+ * - Si usarLNT=true: LNT global per iteració (TaulaEstats per profunditat mínima dins del límit actual).
  */
 public class CercaIDS extends Cerca {
     private static final int MAX_LIMIT = 80;  // Límit màxim per evitar bucles infinits
@@ -21,7 +23,10 @@ public class CercaIDS extends Cerca {
 
     @Override
     public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
         int limit = 0;  // Comença des de 0 per incloure l'inicial
+        // Un tram del buffer per cada nivell de profunditat, compartit per totes les iteracions
+        Moviment[] accions = new Moviment[(MAX_LIMIT + 2) * inicial.getMaxAccions()];
         while (true) {
             if (limit > MAX_LIMIT) {
                 break;
@@ -29,56 +34,59 @@ public class CercaIDS extends Cerca {
             limit++;
 
             // Estructura per control de cicles (nova per iteració)
-            Set<Mapa> camiActual = new HashSet<>();
-            Map<Mapa, Integer> lnt = null;  
+            ConjuntEstats camiActual = new ConjuntEstats(inicial.senseReduccioOrdreParcial().getParaulesClau());
+            TaulaEstats lnt = null;  
             if (usarLNT) {
-                lnt = new HashMap<>();  
+                lnt = new TaulaEstats(inicial.getParaulesClau());  
             }
 
             Node nodeInicial = new Node(inicial, null, null, 0, 0);
 
             rc.incNodesExplorats(); 
 
-            if (idsExplorar(nodeInicial, rc, camiActual, lnt, limit)) {
+            if (idsExplorar(nodeInicial, rc, camiActual, lnt, limit, accions)) {
                 break;  
             }
 
-            camiActual.clear();
-            if (lnt != null) lnt.clear();
+            camiActual.buida();
+            if (lnt != null) lnt.buida();
         }
     }
 
     /**
      * Funció recursiva per explorar IDS amb control de cicles
      * Retorna true si s'ha trobat la meta
+     * El nivell d fa servir el tram del buffer accions que comença a d*getMaxAccions()
      */
-    private boolean idsExplorar(Node actual, ResultatCerca rc, Set<Mapa> camiActual, Map<Mapa, Integer> lnt, int limit) {
+    private boolean idsExplorar(Node actual, ResultatCerca rc, ConjuntEstats camiActual, TaulaEstats lnt, int limit, Moviment[] accions) {
         // Parar si excedeix el límit actual
         if (actual.depth > limit) {
             return false;
         }
 
-        if (!camiActual.add(actual.estat)) {
+        // Els cicles es miren sobre la posició, sense els moviments podats per l'ordre parcial
+        Mapa estatCami = actual.estat.senseReduccioOrdreParcial();
+        if (!camiActual.afegeix(estatCami)) {
             rc.incNodesTallats();
             return false;
         }
 
         if (lnt != null) {
-            Integer minProf = lnt.get(actual.estat);
-            if (minProf != null && actual.depth >= minProf) {
+            int minProf = lnt.get(actual.estat, Integer.MAX_VALUE);
+            if (actual.depth >= minProf) {
                 rc.incNodesTallats();  
-                camiActual.remove(actual.estat); 
+                camiActual.elimina(estatCami); 
                 return false;
             }
-            lnt.put(actual.estat, Math.min(minProf != null ? minProf : Integer.MAX_VALUE, actual.depth));
+            lnt.posa(actual.estat, Math.min(minProf, actual.depth));
         }
 
         // Check meta
         if (actual.estat.esMeta()) {
             List<Moviment> cami = reconstruirCami(actual);
             rc.setCami(cami);
-            camiActual.remove(actual.estat);  
-            if (lnt != null) lnt.remove(actual.estat);  
+            camiActual.elimina(estatCami);  
+            if (lnt != null) lnt.elimina(actual.estat);  
             return true;  
         }
 
@@ -87,18 +95,20 @@ public class CercaIDS extends Cerca {
         long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
         rc.updateMemoria((int) memoriaActual);
 
-        List<Moviment> accions = actual.estat.getAccionsPossibles();
-        for (Moviment accio : accions) {
+        int offset = actual.depth * actual.estat.getMaxAccions();
+        int numAccions = actual.estat.accionsPossibles(accions, offset);
+        for (int i = offset; i < offset + numAccions; i++) {
+            Moviment accio = accions[i];
             Mapa nouEstat = actual.estat.mou(accio);
             Node successor = new Node(nouEstat, actual, accio, actual.depth + 1, actual.g + 1);
 
-            if (idsExplorar(successor, rc, camiActual, lnt, limit)) {
-                camiActual.remove(actual.estat);  
+            if (idsExplorar(successor, rc, camiActual, lnt, limit, accions)) {
+                camiActual.elimina(estatCami);  
                 return true;  
             }
         }
 
-        camiActual.remove(actual.estat);
+        camiActual.elimina(estatCami);
 
         if (rc.getCami() != null) {
             return true;
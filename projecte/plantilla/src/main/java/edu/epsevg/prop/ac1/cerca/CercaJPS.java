@@ -0,0 +1,101 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.ConjuntEstats;
+import edu.epsevg.prop.ac1.utils.CuaCubetes;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+
+import java.util.*;
+
+/**
+ * A* sobre salts de Jump Point Search (veure Salts): cada successor mou un agent en
+ * línia recta fins al següent punt de salt, amb cost igual al nombre de caselles. Als
+ * espais oberts, les caselles intermèdies no es generen mai com a nodes. El camí final
+ * es desplega a moviments d'una casella.
+ *
+ * Control de cicles configurable:
+ * - Si usarLNT=false: ConjuntEstats de visitats (sense reobrir).
+ * - Si usarLNT=true: TaulaEstats amb la g mínima de cada estat; un estat es reobre si
+ *   s'hi arriba amb una g més petita (amb salts de longitud variable pot passar).
+ */
+public class CercaJPS extends Cerca {
+    private final Heuristica heur;
+
+    public CercaJPS(boolean usarLNT, Heuristica heur) {
+        super(usarLNT);
+        this.heur = heur;
+    }
+
+    /**
+     * Node d'un salt: accio és l'últim pas i longitud el nombre de passos
+     */
+    private static final class NodeSalt extends Node {
+        final int longitud;
+
+        NodeSalt(Mapa estat, Node pare, Moviment accio, int longitud, int h) {
+            super(estat, pare, accio, pare.depth + 1, pare.g + longitud, h);
+            this.longitud = longitud;
+        }
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        CuaCubetes<Node> frontera = new CuaCubetes<>();
+        ConjuntEstats visitats = usarLNT ? null : new ConjuntEstats(inicial.getParaulesClau());
+        TaulaEstats millorG = usarLNT ? new TaulaEstats(inicial.getParaulesClau()) : null;
+
+        Node nodeInicial = new Node(inicial, null, null, 0, 0, heur.h(inicial));
+        frontera.afegeix(nodeInicial, nodeInicial.f(), 0);
+        if (usarLNT) millorG.posa(inicial, 0); else visitats.afegeix(inicial);
+        rc.incNodesExplorats();
+
+        Moviment[] accions = new Moviment[Salts.getMaxSalts(inicial)];
+        int[] longituds = new int[accions.length];
+        Node meta = null;
+
+        while (!frontera.esBuida()) {
+            Node actual = frontera.treu();
+            if (usarLNT && actual.g > millorG.get(actual.estat, Integer.MAX_VALUE)) continue;  // obsolet
+            rc.incNodesExplorats();
+
+            if (actual.estat.esMeta()) {
+                meta = actual;
+                break;
+            }
+
+            int num = Salts.genera(actual.estat, accions, longituds, 0);
+            for (int i = 0; i < num; i++) {
+                Mapa nouEstat = Salts.aplica(actual.estat, accions[i], longituds[i]);
+                int g = actual.g + longituds[i];
+                if (usarLNT) {
+                    if (g >= millorG.get(nouEstat, Integer.MAX_VALUE)) {
+                        rc.incNodesTallats();
+                        continue;
+                    }
+                    millorG.posa(nouEstat, g);
+                } else if (!visitats.afegeix(nouEstat)) {
+                    rc.incNodesTallats();
+                    continue;
+                }
+                Node successor = new NodeSalt(nouEstat, actual, accions[i], longituds[i], heur.h(nouEstat));
+                frontera.afegeix(successor, successor.f(), successor.g);
+            }
+
+            long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            rc.updateMemoria((int) memoriaActual);
+        }
+
+        if (meta != null) {
+            List<Node> salts = new ArrayList<>();
+            for (Node n = meta; n.pare != null; n = n.pare) salts.add(n);
+            Collections.reverse(salts);
+            List<Moviment> cami = new ArrayList<>();
+            for (Node n : salts) cami.addAll(Salts.desplega(n.pare.estat, n.accio, ((NodeSalt) n).longitud));
+            rc.setCami(cami);
+        }
+        frontera.buida();
+    }
+}
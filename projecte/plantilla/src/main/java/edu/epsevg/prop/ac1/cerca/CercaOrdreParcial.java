@@ -0,0 +1,40 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+
+/**
+ * Executa una altra cerca amb la reducció d'ordre parcial activada a l'estat inicial (veure
+ * Mapa.ambReduccioOrdreParcial): dels moviments independents de dos agents només es genera
+ * l'ordre canònic, i les interpolacions redundants no arriben a crear-se.
+ *
+ * La longitud òptima no canvia, però només compensa a les cerques en arbre sense LNT
+ * (CercaDFS, CercaIDS, CercaIDAStar), que altrament repeteixen totes les interpolacions:
+ * amb tres agents, IDS passa de 4402 a 807 nodes explorats. Les cerques amb control global
+ * d'estats repetits hi perden, perquè una mateixa posició amb conjunts de podats diferents
+ * es compta com a estats diferents (BFS a mapC, de 13114 a 22685 nodes explorats; també
+ * IDA* amb taula). Les que modifiquen l'estat in situ (CercaDFSPila) o que cerquen
+ * enrere (CercaBFSBidireccional) descarten la reducció. Per això només s'accepten les
+ * primeres.
+ */
+public class CercaOrdreParcial extends Cerca {
+    private final Cerca interna;
+
+    /**
+     * @param interna cerca en arbre sense LNT (CercaDFS, CercaIDS o CercaIDAStar)
+     * @throws IllegalArgumentException si la cerca no és d'aquest tipus
+     */
+    public CercaOrdreParcial(Cerca interna) {
+        super(interna.usarLNT);
+        boolean arbre = interna instanceof CercaDFS || interna instanceof CercaIDS || interna instanceof CercaIDAStar;
+        if (!arbre || interna.usarLNT) {
+            throw new IllegalArgumentException("La reducció d'ordre parcial només és per a cerques en arbre sense LNT");
+        }
+        this.interna = interna;
+    }
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        interna.ferCerca(inicial.ambReduccioOrdreParcial(), rc);
+    }
+}
@@ -0,0 +1,410 @@
+package edu.epsevg.prop.ac1.cerca;
+
+import edu.epsevg.prop.ac1.cerca.heuristica.Heuristica;
+import edu.epsevg.prop.ac1.model.*;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.TaulaEstats;
+import edu.epsevg.prop.ac1.utils.TaulaTransposicions;
+
+import java.util.*;
+
+/**
+ * SMA* (Simplified Memory-bounded A*): A* amb un màxim de maxNodes nodes en memòria.
+ *
+ * Cada expansió genera un sol successor del millor node. La primera vegada se n'avaluen
+ * tots (g + h) sense guardar-los, i es genera el de cota més petita; les següents, el de
+ * cota més petita dels que no són en memòria. El node torna a la frontera mentre li
+ * quedin successors per generar. Quan se supera el límit, s'oblida la pitjor fulla (cota
+ * més gran i, a igualtat, la menys profunda) i el pare guarda la seva cota a la posició
+ * d'aquell successor; si més endavant és el millor, el regenera sol.
+ *
+ * Cada node guarda una cota f que només creix: en generar un fill, max(g + h, cota del
+ * pare, cota que tenia quan es va oblidar) (pathmax); la cota d'un node expandit és el
+ * mínim de la dels fills en memòria i la dels altres successors, i els canvis es propaguen
+ * cap amunt. A la frontera, un node ja expandit s'ordena per la cota del successor que
+ * generaria. Els ancestres d'un node en memòria no s'obliden mai, de manera que el camí
+ * es reconstrueix pels pares.
+ *
+ * Un camí de profunditat d necessita d + 1 nodes en memòria: els fills de profunditat
+ * maxNodes - 1 que no són meta tenen cota infinita. Si el camí òptim no passa d'aquesta
+ * profunditat, la solució és òptima. Si els estats amb f per sota de l'òptim no hi caben,
+ * la cerca regenera nodes com un IDA*, però només la branca que toca.
+ *
+ * Control de duplicats: una TaulaEstats amb la g de cada estat que és en memòria (i per
+ * tant també limitada a maxNodes). Es descarta un successor si el seu estat ja hi és amb
+ * g menor o igual. Els ancestres hi són sempre, i per tant també fa de control de cicles
+ * del camí.
+ *
+ * Un estat oblidat es pot tornar a trobar per un altre camí, i sense res més se'n
+ * tornaria a cercar tot el subarbre (les transposicions de moviments de diferents agents
+ * fan créixer els camins exponencialment). Per això, amb usarLNT=true, en oblidar un node
+ * es desa a una TaulaTransposicions de ENTRADES_PER_NODE * maxNodes entrades (una entrada
+ * és la clau de l'estat i cinc enters, molt menys que un node amb el seu estat):
+ * - La g més petita amb què s'ha oblidat l'estat i, com a marca, el hash del pare d'aquella
+ *   còpia. Un fill que hi és amb una g més petita, o igual però amb un altre pare, es
+ *   descarta: el seu subarbre ja el representa la cota que guarda el pare de la còpia
+ *   desada, que el tornarà a generar quan es regeneri.
+ * - Una cota del cost fins a la meta (com a IDA*), que substitueix la h si és més gran.
+ *   Ha de valer per a qualsevol camí, i per tant no surt de la cota del node: es calcula
+ *   a part, sense pathmax, i els successors descartats o massa profunds hi compten amb la
+ *   seva g + h.
+ */
+public class CercaSMAStar extends Cerca {
+    public static final int NODES_PER_DEFECTE = 1 << 18;
+    /** Entrades de la taula de transposicions per cada node del límit */
+    public static final int ENTRADES_PER_NODE = 4;
+    private static final int INFINIT = Integer.MAX_VALUE;
+    /** Cota admissible d'un successor descartat com a duplicat, que es recalcula */
+    private static final int TALLAT = -1;
+
+    private final Heuristica heur;
+    private final int maxNodes;
+
+    public CercaSMAStar(boolean usarLNT, Heuristica heur) {
+        this(usarLNT, heur, NODES_PER_DEFECTE);
+    }
+
+    /**
+     * @param maxNodes nombre màxim de nodes en memòria alhora
+     */
+    public CercaSMAStar(boolean usarLNT, Heuristica heur, int maxNodes) {
+        super(usarLNT);
+        this.heur = heur;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Node amb cota f variable i, un cop expandit, l'estat de cada successor: el fill si
+     * és en memòria, o a valor la seva cota si no ho és (INFINIT si és un duplicat o no té
+     * sortida). fites guarda la cota admissible dels que no són en memòria (TALLAT per als
+     * duplicats).
+     */
+    private static final class NodeSMA extends Node {
+        final long id;
+        final int posicio;
+        int cota;
+        /** Cota del successor que generaria (ordre a la frontera) */
+        int clau;
+        boolean obert;
+        boolean fulla;
+        Moviment[] accions;
+        NodeSMA[] fills;
+        int[] valor;
+        int[] fites;
+        int numFills;
+
+        NodeSMA(Mapa estat, NodeSMA pare, int posicio, Moviment accio, int g, int h, int cota, long id) {
+            super(estat, pare, accio, pare == null ? 0 : pare.depth + 1, g, h);
+            this.posicio = posicio;
+            this.cota = cota;
+            this.clau = cota;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Frontera: menor clau primer i, a igualtat, el més profund
+     */
+    private static final Comparator<NodeSMA> ORDRE = (a, b) -> {
+        if (a.clau != b.clau) return Integer.compare(a.clau, b.clau);
+        if (a.depth != b.depth) return Integer.compare(b.depth, a.depth);
+        return Long.compare(a.id, b.id);
+    };
+
+    /**
+     * Fulles (nodes sense fills en memòria): la primera és la pitjor, la de cota més gran
+     * i, a igualtat, la menys profunda
+     */
+    private static final Comparator<NodeSMA> PITJOR = (a, b) -> {
+        if (a.cota != b.cota) return Integer.compare(b.cota, a.cota);
+        if (a.depth != b.depth) return Integer.compare(a.depth, b.depth);
+        return Long.compare(b.id, a.id);
+    };
+
+    private TreeSet<NodeSMA> oberts;
+    private TreeSet<NodeSMA> fulles;
+    private TaulaEstats enMemoria;
+    private TaulaTransposicions tt;
+    private int numNodes;
+    private long ids;
+
+    @Override
+    public void ferCerca(Mapa inicial, ResultatCerca rc) {
+        if (esInsoluble(inicial)) return;
+        if (maxNodes < 2) {
+            throw new IllegalArgumentException("Cal un límit d'almenys 2 nodes");
+        }
+        Moviment[] accions = new Moviment[inicial.getMaxAccions()];
+        oberts = new TreeSet<>(ORDRE);
+        fulles = new TreeSet<>(PITJOR);
+        enMemoria = new TaulaEstats(inicial.getParaulesClau());
+        tt = usarLNT ? new TaulaTransposicions(inicial.getParaulesClau(), ENTRADES_PER_NODE * maxNodes) : null;
+        ids = 0;
+
+        int h0 = h(inicial);
+        NodeSMA arrel = new NodeSMA(inicial, null, -1, null, 0, h0, h0, ids++);
+        obre(arrel);
+        fulla(arrel, true);
+        enMemoria.posa(inicial, 0);
+        numNodes = 1;
+        rc.incNodesExplorats();
+
+        NodeSMA meta = null;
+        while (!oberts.isEmpty()) {
+            NodeSMA n = oberts.first();
+            if (n.clau == INFINIT) break;  // ni la solució òptima ni cap altra hi caben
+            if (n.estat.esMeta()) {
+                meta = n;
+                break;
+            }
+            tanca(n);
+            rc.incNodesExplorats();
+
+            if (n.valor == null) {
+                // Primera expansió: s'avaluen tots els successors, però no se'n guarda cap
+                int num = n.estat.accionsPossibles(accions, 0);
+                n.accions = Arrays.copyOf(accions, num);
+                n.fills = new NodeSMA[num];
+                n.valor = new int[num];
+                n.fites = new int[num];
+                for (int i = 0; i < num; i++) {
+                    Mapa s = n.estat.mou(n.accions[i]);
+                    if (descarta(n, i, s, rc)) continue;
+                    int h = h(s);
+                    n.valor[i] = cota(n, s, h, INFINIT);
+                    n.fites[i] = suma(n.g + 1, h);
+                }
+            }
+
+            // Generar un sol successor: el de cota més petita dels que no són en memòria
+            int i = seguent(n);
+            if (i >= 0) {
+                Mapa s = n.estat.mou(n.accions[i]);
+                if (!descarta(n, i, s, rc)) {
+                    int h = h(s);
+                    NodeSMA fill = new NodeSMA(s, n, i, n.accions[i], n.g + 1, h, cota(n, s, h, n.valor[i]), ids++);
+                    n.fills[i] = fill;
+                    n.numFills++;
+                    fulla(n, false);
+                    obre(fill);
+                    fulla(fill, true);
+                    enMemoria.posa(s, fill.g);
+                    numNodes++;
+                }
+            }
+            reobre(n);
+            actualitza(n);
+
+            while (numNodes > maxNodes && oblidaPitjor()) { }
+
+            long memoriaActual = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            rc.updateMemoria((int) memoriaActual);
+        }
+
+        if (meta != null) {
+            List<Moviment> cami = new ArrayList<>();
+            for (Node n = meta; n.pare != null; n = n.pare) cami.add(n.accio);
+            Collections.reverse(cami);
+            rc.setCami(cami);
+        }
+        oberts = null;
+        fulles = null;
+        tt = null;
+        enMemoria.buida();
+        enMemoria = null;
+    }
+
+    /**
+     * @return la h de l'estat, o la cota desada a la taula de transposicions si és més gran
+     */
+    private int h(Mapa s) {
+        int h = heur.h(s);
+        if (tt != null) {
+            int pos = tt.busca(s);
+            if (pos >= 0) h = Math.max(h, tt.getCota(pos));
+        }
+        return h;
+    }
+
+    /**
+     * @return true si la taula diu que una altra còpia oblidada de l'estat (amb g més
+     * petita, o igual però generada des d'un altre estat pare) ja en representa el subarbre
+     */
+    private boolean representat(Mapa s, int g, Mapa pare) {
+        int pos = tt.busca(s);
+        if (pos < 0) return false;
+        int gTaula = tt.getG(pos);
+        return gTaula < g || (gTaula == g && tt.getMarca(pos) != pare.hashCode());
+    }
+
+    /**
+     * Desa un estat oblidat a la taula, conservant la g més petita (i el pare d'aquella
+     * còpia) i la cota més gran
+     */
+    private void desa(Mapa s, Mapa pare, int g, int cota) {
+        int propietari = pare.hashCode();
+        int pos = tt.busca(s);
+        if (pos >= 0) {
+            if (tt.getG(pos) <= g) {
+                g = tt.getG(pos);
+                propietari = tt.getMarca(pos);
+            }
+            cota = Math.max(cota, tt.getCota(pos));
+        }
+        tt.desa(s, g, cota, 0, propietari);
+    }
+
+    private static int suma(int a, int b) {
+        return a == INFINIT || b == INFINIT ? INFINIT : a + b;
+    }
+
+    /**
+     * Descarta el successor i de n si el seu estat s ja és en memòria amb g menor o igual
+     * (o, amb usarLNT, si una còpia oblidada el representa)
+     * @return true si s'ha descartat
+     */
+    private boolean descarta(NodeSMA n, int i, Mapa s, ResultatCerca rc) {
+        int g = n.g + 1;
+        int gMemoria = enMemoria.get(s, INFINIT);
+        if (g < gMemoria && (tt == null || !representat(s, g, n.estat))) return false;
+        rc.incNodesTallats();
+        n.valor[i] = INFINIT;
+        n.fites[i] = TALLAT;
+        return true;
+    }
+
+    /**
+     * Cota d'un successor s de n: max(g + h, cota de n, cota anterior) (pathmax), o
+     * INFINIT si és massa profund per expandir-lo i no és meta
+     */
+    private int cota(NodeSMA n, Mapa s, int h, int anterior) {
+        if (n.depth + 2 >= maxNodes && !s.esMeta()) return INFINIT;
+        int cota = Math.max(suma(n.g + 1, h), n.cota);
+        return anterior == INFINIT ? cota : Math.max(cota, anterior);
+    }
+
+    /**
+     * Successor que toca generar: el de cota més petita dels que no són en memòria, o -1
+     * si no en queda cap
+     */
+    private static int seguent(NodeSMA n) {
+        int millor = -1;
+        for (int i = 0; i < n.valor.length; i++) {
+            if (n.fills[i] != null || n.valor[i] == INFINIT) continue;
+            if (millor < 0 || n.valor[i] < n.valor[millor]) millor = i;
+        }
+        return millor;
+    }
+
+    /**
+     * Torna n a la frontera si li queden successors per generar, ordenat per la cota del
+     * que generaria. Si no té ni fills en memòria ni successors, es queda sense sortida.
+     */
+    private void reobre(NodeSMA n) {
+        if (n.obert) tanca(n);
+        int i = seguent(n);
+        if (i >= 0) {
+            n.clau = n.valor[i];
+            obre(n);
+        } else if (n.numFills == 0) {
+            marcaSenseSortida(n);
+        }
+    }
+
+    /**
+     * Recalcula la cota de n a partir dels successors i la propaga cap a l'arrel mentre
+     * canviï
+     */
+    private void actualitza(NodeSMA n) {
+        while (n != null) {
+            int nova = INFINIT;
+            for (int i = 0; i < n.valor.length; i++) {
+                nova = Math.min(nova, n.fills[i] != null ? n.fills[i].cota : n.valor[i]);
+            }
+            if (nova <= n.cota) return;
+            canviaCota(n, nova);
+            n = (NodeSMA) n.pare;
+        }
+    }
+
+    /**
+     * Cota admissible de g + cost fins a la meta d'una fulla, vàlida per a qualsevol camí
+     * fins al seu estat
+     */
+    private int fita(NodeSMA w) {
+        int fita = suma(w.g, h(w.estat));
+        if (w.valor == null) return fita;
+        int min = INFINIT;
+        for (int i = 0; i < w.valor.length; i++) {
+            int f = w.fites[i];
+            if (f == TALLAT) f = suma(w.g + 1, h(w.estat.mou(w.accions[i])));
+            min = Math.min(min, f);
+        }
+        return Math.max(fita, min);
+    }
+
+    /**
+     * Oblida la pitjor fulla (mai l'arrel) i guarda la seva cota al pare
+     * @return false si no n'hi ha cap que es pugui oblidar
+     */
+    private boolean oblidaPitjor() {
+        NodeSMA w = fulles.first();
+        if (w.pare == null) return false;
+        if (w.obert) tanca(w);
+        fulla(w, false);
+        NodeSMA p = (NodeSMA) w.pare;
+        p.fills[w.posicio] = null;
+        p.valor[w.posicio] = w.cota;
+        p.numFills--;
+        if (tt != null) {
+            int fita = fita(w);
+            p.fites[w.posicio] = fita;
+            desa(w.estat, p.estat, w.g, fita == INFINIT ? INFINIT : fita - w.g);
+        }
+        if (p.numFills == 0) fulla(p, true);
+        if (enMemoria.get(w.estat, INFINIT) == w.g) enMemoria.elimina(w.estat);
+        numNodes--;
+        reobre(p);
+        return true;
+    }
+
+    /**
+     * Converteix n en una fulla de cota infinita, la primera a oblidar
+     */
+    private void marcaSenseSortida(NodeSMA n) {
+        if (n.obert) tanca(n);
+        n.clau = INFINIT;
+        obre(n);
+        actualitza(n);
+    }
+
+    private void canviaCota(NodeSMA n, int cota) {
+        boolean eraFulla = n.fulla;
+        if (eraFulla) fulla(n, false);
+        boolean eraObert = n.obert;
+        if (eraObert && n.valor == null) tanca(n);
+        n.cota = cota;
+        if (eraObert && n.valor == null) {
+            n.clau = cota;
+            obre(n);
+        }
+        if (eraFulla) fulla(n, true);
+    }
+
+    private void fulla(NodeSMA n, boolean fulla) {
+        if (n.fulla == fulla) return;
+        if (fulla) fulles.add(n);
+        else fulles.remove(n);
+        n.fulla = fulla;
+    }
+
+    private void obre(NodeSMA n) {
+        oberts.add(n);
+        n.obert = true;
+    }
+
+    private void tanca(NodeSMA n) {
+        oberts.remove(n);
+        n.obert = false;
+    }
+}
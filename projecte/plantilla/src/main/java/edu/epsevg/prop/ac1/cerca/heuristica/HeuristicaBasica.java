@@ -7,7 +7,7 @@ import edu.epsevg.prop.ac1.model.Mapa;
  * Distància de Manhattan a la clau més propera 
  * (si queden per recollir) o a la sortida.
  */
-public class HeuristicaBasica implements Heuristica {
+public class HeuristicaBasica implements HeuristicaFills {
     @Override
     public int h(Mapa estat) {
         if (estat.esMeta()) {
@@ -27,4 +27,36 @@ public class HeuristicaBasica implements Heuristica {
 
         return minDist;
     }
+
+    /**
+     * Funció de selecció d'operadors: un moviment només canvia en 1 la distància de l'agent
+     * que es mou, i la h del fill és el mínim entre la seva nova distància i la millor de
+     * la resta d'agents (la segona millor si el que es mou era el més proper).
+     */
+    @Override
+    public boolean hFills(Mapa estat, Moviment[] accions, int num, int[] hFills) {
+        Tauler tauler = estat.getTauler();
+        int sortida = tauler.getSortida();
+        int min1 = Integer.MAX_VALUE, min2 = Integer.MAX_VALUE, agentMin = -1;
+        for (int a = 0; a < estat.getNumAgents(); a++) {
+            int d = distancia(tauler, estat.getCellaAgent(a), sortida);
+            if (d < min1) {
+                min2 = min1;
+                min1 = d;
+                agentMin = a;
+            } else if (d < min2) {
+                min2 = d;
+            }
+        }
+        for (int i = 0; i < num; i++) {
+            int a = accions[i].getAgentId() - 1;
+            int desti = tauler.vei(estat.getCellaAgent(a), accions[i].getDireccio());
+            hFills[i] = Math.min(distancia(tauler, desti, sortida), a == agentMin ? min2 : min1);
+        }
+        return true;
+    }
+
+    private static int distancia(Tauler tauler, int a, int b) {
+        return Math.abs(tauler.fila(a) - tauler.fila(b)) + Math.abs(tauler.columna(a) - tauler.columna(b));
+    }
 }
@@ -0,0 +1,197 @@
+package edu.epsevg.prop.ac1.cerca.heuristica;
+
+import edu.epsevg.prop.ac1.model.Accessibilitat;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.model.Tauler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distància real (amb parets i portes) a la sortida, llegida de taules precalculades amb
+ * un BFS enrere des de la sortida per cada màscara de claus. Cada h() és una consulta a
+ * la taula de la màscara de l'estat.
+ *
+ * Amb un sol agent actiu (no congelat) la taula és exacta: per a la màscara M, les portes
+ * de M estan obertes, les altres tancades, i les claus pendents són punts on s'acaba el
+ * tram amb cost la distància de la taula de M + clau des d'aquella cel·la. És el cost
+ * òptim del problema amb un agent, i per tant admissible i consistent.
+ *
+ * Amb diversos agents, un agent pot obrir una porta a un altre, i la taula exacta d'un
+ * sol agent ja no és admissible. Es fa servir la distància amb obertes totes les portes
+ * de les claus assolibles (Accessibilitat.clausAssolibles) i el mínim entre agents: té en
+ * compte les parets, però no l'ordre en què s'obren les portes.
+ *
+ * Les taules es construeixen quan es demanen i es comparteixen entre totes les cerques
+ * sobre el mateix tauler. La taula exacta d'una màscara necessita les de totes les
+ * màscares amb més claus, 2^pendents taules de getNumCelles() enters: si no caben a
+ * maxEntrades també es fa servir la distància relaxada (una sola taula).
+ */
+public class HeuristicaDistancies implements HeuristicaFills {
+    /** Enters per defecte de les taules exactes d'un tauler (16 MB) */
+    public static final long MAX_ENTRADES_EXACTES = 1 << 22;
+
+    // Les Taules no referencien el Tauler, i així la clau de la memòria cau és feble
+    private static final Map<Tauler, Taules> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final long maxEntrades;
+
+    public HeuristicaDistancies() {
+        this(MAX_ENTRADES_EXACTES);
+    }
+
+    /**
+     * @param maxEntrades nombre màxim d'enters de les taules exactes d'un tauler
+     */
+    public HeuristicaDistancies(long maxEntrades) {
+        this.maxEntrades = maxEntrades;
+    }
+
+    @Override
+    public int h(Mapa estat) {
+        if (estat.esMeta()) {
+            return 0;
+        }
+        Tauler tauler = estat.getTauler();
+        int[] dist = taulaExacta(estat);
+        if (dist == null) {
+            dist = taules(tauler).relaxada(tauler, Accessibilitat.de(tauler).clausAssolibles(estat));
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (int a = 0; a < estat.getNumAgents(); a++) {
+            int d = dist[estat.getCellaAgent(a)];
+            if (!estat.esCongelat(a) && d >= 0) min = Math.min(min, d);
+        }
+        return min == Integer.MAX_VALUE ? 0 : min;  // sense camí: no aporta res
+    }
+
+    /**
+     * Funció de selecció d'operadors, només en el mode exacte: la h d'un fill és la casella
+     * de destí a la taula de la mateixa màscara, o a la de la màscara amb la clau nova si
+     * el moviment la recull (que ja s'ha calculat per fer la del pare).
+     */
+    @Override
+    public boolean hFills(Mapa estat, Moviment[] accions, int num, int[] hFills) {
+        int[] dist = taulaExacta(estat);
+        if (dist == null) return false;
+        Tauler tauler = estat.getTauler();
+        for (int i = 0; i < num; i++) {
+            Moviment accio = accions[i];
+            int desti = tauler.vei(estat.getCellaAgent(accio.getAgentId() - 1), accio.getDireccio());
+            int[] taula = accio.isRecullClau()
+                    ? taules(tauler).exacta(tauler, estat.getClausMask() | Tauler.bitClau(tauler.getCella(desti)))
+                    : dist;
+            hFills[i] = Math.max(taula[desti], 0);
+        }
+        return true;
+    }
+
+    /**
+     * @return la taula exacta de l'estat, o null si té més d'un agent actiu o si les
+     * taules exactes no caben a maxEntrades
+     */
+    private int[] taulaExacta(Mapa estat) {
+        Tauler tauler = estat.getTauler();
+        int actius = 0;
+        for (int a = 0; a < estat.getNumAgents(); a++) if (!estat.esCongelat(a)) actius++;
+        int pendents = 0;
+        for (int i = 0; i < tauler.getNumClaus(); i++) {
+            int c = tauler.getCella(tauler.getCellaClau(i));
+            if ((estat.getClausMask() & Tauler.bitClau(c)) == 0) pendents++;
+        }
+        if (actius != 1 || (1L << pendents) * tauler.getNumCelles() > maxEntrades) return null;
+        return taules(tauler).exacta(tauler, estat.getClausMask());
+    }
+
+    private static Taules taules(Tauler tauler) {
+        return CACHE.computeIfAbsent(tauler, t -> new Taules());
+    }
+
+    /**
+     * Taules de distàncies d'un tauler, per màscara (-1 = la sortida no és accessible)
+     */
+    private static final class Taules {
+        private final Map<Integer, int[]> exactes = new ConcurrentHashMap<>();
+        private final Map<Integer, int[]> relaxades = new ConcurrentHashMap<>();
+
+        int[] exacta(Tauler tauler, int mask) {
+            int[] dist = exactes.get(mask);
+            if (dist != null) return dist;
+            // Primer les taules de les màscares amb una clau més (fora del computeIfAbsent,
+            // que no admet actualitzacions recursives)
+            int[] fonts = new int[tauler.getNumClaus()];
+            for (int i = 0; i < tauler.getNumClaus(); i++) {
+                int c = tauler.getCellaClau(i);
+                int bit = Tauler.bitClau(tauler.getCella(c));
+                fonts[i] = (mask & bit) != 0 ? -1 : exacta(tauler, mask | bit)[c];
+            }
+            exactes.putIfAbsent(mask, bfs(tauler, mask, fonts));
+            return exactes.get(mask);
+        }
+
+        int[] relaxada(Tauler tauler, int mask) {
+            return relaxades.computeIfAbsent(mask, m -> bfs(tauler, m, null));
+        }
+
+        /**
+         * BFS enrere per nivells des de la sortida (distància 0) i, si fonts no és null,
+         * des de cada clau pendent i amb distància fonts[i] (-1 = no s'hi pot arribar). Les
+         * claus pendents no es travessen: el valor hi és fix.
+         */
+        private static int[] bfs(Tauler tauler, int mask, int[] fonts) {
+            int cel = tauler.getNumCelles();
+            int[] dist = new int[cel];
+            Arrays.fill(dist, -1);
+            boolean[] fixa = new boolean[cel];
+
+            // Fonts ordenades per distància: (distància << 32) | cel·la
+            int numFonts = 0;
+            long[] ordre = new long[(fonts == null ? 0 : fonts.length) + 1];
+            ordre[numFonts++] = tauler.getSortida();
+            if (fonts != null) {
+                for (int i = 0; i < fonts.length; i++) {
+                    int c = tauler.getCellaClau(i);
+                    if ((mask & Tauler.bitClau(tauler.getCella(c))) != 0) continue;
+                    fixa[c] = true;
+                    if (fonts[i] >= 0) ordre[numFonts++] = ((long) fonts[i] << 32) | c;
+                }
+            }
+            Arrays.sort(ordre, 0, numFonts);
+
+            int[] actual = new int[cel], seguent = new int[cel];
+            int numActual = 0, f = 0;
+            for (int nivell = 0; numActual > 0 || f < numFonts; nivell++) {
+                if (numActual == 0) nivell = Math.max(nivell, (int) (ordre[f] >>> 32));
+                for (; f < numFonts && (int) (ordre[f] >>> 32) == nivell; f++) {
+                    int c = (int) ordre[f];
+                    if (dist[c] < 0) {
+                        dist[c] = nivell;
+                        actual[numActual++] = c;
+                    }
+                }
+                int numSeguent = 0;
+                for (int i = 0; i < numActual; i++) {
+                    int c = actual[i];
+                    for (int e = tauler.iniciVeins(c), fi = tauler.fiVeins(c); e < fi; e++) {
+                        int v = tauler.getVei(e);
+                        if (dist[v] >= 0 || fixa[v]) continue;
+                        int cell = tauler.getCella(v);
+                        if (Tauler.esPorta(cell) && (mask & Tauler.bitClau(cell)) == 0) continue;
+                        dist[v] = nivell + 1;
+                        seguent[numSeguent++] = v;
+                    }
+                }
+                int[] tmp = actual;
+                actual = seguent;
+                seguent = tmp;
+                numActual = numSeguent;
+            }
+            return dist;
+        }
+    }
+}
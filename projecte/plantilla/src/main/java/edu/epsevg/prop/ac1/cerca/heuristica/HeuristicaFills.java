@@ -0,0 +1,21 @@
+package edu.epsevg.prop.ac1.cerca.heuristica;
+
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+
+/**
+ * Heurística que pot donar la h dels fills d'un estat sense generar-los: és la funció de
+ * selecció d'operadors d'EPEA*, que així només crea els fills amb la f que toca.
+ */
+public interface HeuristicaFills extends Heuristica {
+    /**
+     * Escriu a hFills[i] el valor h(estat.mou(accions[i])) per a i &lt; num, sense fer el
+     * moviment.
+     * @param estat estat pare
+     * @param accions moviments possibles de l'estat (els de accionsPossibles)
+     * @param num nombre de moviments
+     * @param hFills vector on escriure les h (almenys num posicions)
+     * @return false si per aquest estat no ho sap fer sense generar els fills
+     */
+    boolean hFills(Mapa estat, Moviment[] accions, int num, int[] hFills);
+}
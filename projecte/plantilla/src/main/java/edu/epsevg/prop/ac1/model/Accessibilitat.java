@@ -0,0 +1,166 @@
+package edu.epsevg.prop.ac1.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Anàlisi d'accessibilitat per claus i portes, relaxada: no té en compte que els agents
+ * es bloquegen entre ells.
+ *
+ * Per cada màscara de claus es calculen (un sol cop, quan es demana) els components
+ * connexos de les cel·les transitables amb aquella màscara, quines claus hi ha a cada
+ * component i quin component conté la sortida. Sobre això, el punt fix de les claus
+ * assolibles d'un estat: les claus dels components on són els agents s'afegeixen a la
+ * màscara, es recalculen els components, i així fins que no n'entra cap més.
+ *
+ * - esResoluble: si ni tan sols en el model relaxat cap agent arriba a la sortida, l'estat
+ *   no té solució (una porta amb la clau darrere seu, una sortida tancada...).
+ * - esAssolible: si un estat no es pot haver generat des d'un altre (claus que no es
+ *   poden aconseguir, agents en un component on no poden arribar), per podar la cerca
+ *   enrere.
+ * - agentsIrrellevants: agents tancats en un component sense sortida ni claus pendents,
+ *   que es poden congelar (veure Mapa.calculaCongelats).
+ *
+ * Les claus només s'afegeixen i els agents només es mouen dins del seu component, de
+ * manera que tots els successors d'un estat resoluble també ho són: cap a endavant n'hi
+ * ha prou de comprovar l'estat inicial. Els components es comparteixen entre totes les
+ * cerques sobre el mateix tauler.
+ */
+public final class Accessibilitat {
+    // No referencia el Tauler, i així la clau de la memòria cau és feble
+    private static final Map<Tauler, Accessibilitat> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<Integer, Components> perMascara = new ConcurrentHashMap<>();
+
+    private Accessibilitat() { }
+
+    /**
+     * @return l'anàlisi (compartida) del tauler
+     */
+    public static Accessibilitat de(Tauler tauler) {
+        return CACHE.computeIfAbsent(tauler, t -> new Accessibilitat());
+    }
+
+    /**
+     * Components connexos de les cel·les transitables amb una màscara de claus
+     */
+    private static final class Components {
+        final int[] comp;       // component de cada cel·la (-1 = paret o porta tancada)
+        final int[] claus;      // màscara de les claus de cada component
+        final int compSortida;  // component de la sortida (-1 si la sortida no és transitable)
+
+        Components(Tauler tauler, int mask) {
+            int cel = tauler.getNumCelles();
+            comp = new int[cel];
+            Arrays.fill(comp, -1);
+            int[] pendents = new int[cel];
+            int[] clausComp = new int[cel];
+            int num = 0;
+            for (int inici = 0; inici < cel; inici++) {
+                if (comp[inici] >= 0 || !transitable(tauler, inici, mask)) continue;
+                int cap = 0, fi = 0;
+                pendents[fi++] = inici;
+                comp[inici] = num;
+                while (cap < fi) {
+                    int c = pendents[cap++];
+                    if (Tauler.esClau(tauler.getCella(c))) clausComp[num] |= Tauler.bitClau(tauler.getCella(c));
+                    for (int e = tauler.iniciVeins(c), ultim = tauler.fiVeins(c); e < ultim; e++) {
+                        int v = tauler.getVei(e);
+                        if (comp[v] >= 0 || !transitable(tauler, v, mask)) continue;
+                        comp[v] = num;
+                        pendents[fi++] = v;
+                    }
+                }
+                num++;
+            }
+            claus = Arrays.copyOf(clausComp, num);
+            compSortida = comp[tauler.getSortida()];
+        }
+
+        private static boolean transitable(Tauler tauler, int c, int mask) {
+            int cell = tauler.getCella(c);
+            if (cell == Mapa.PARET) return false;
+            return !Tauler.esPorta(cell) || (mask & Tauler.bitClau(cell)) != 0;
+        }
+    }
+
+    private Components components(Tauler tauler, int mask) {
+        return perMascara.computeIfAbsent(mask, m -> new Components(tauler, m));
+    }
+
+    /**
+     * Punt fix de les claus que poden recollir els agents de l'estat
+     * @return la màscara de claus final
+     */
+    public int clausAssolibles(Mapa estat) {
+        Tauler tauler = estat.getTauler();
+        int mask = estat.getClausMask();
+        while (true) {
+            Components c = components(tauler, mask);
+            int noves = mask;
+            for (int a = 0; a < estat.getNumAgents(); a++) {
+                int k = c.comp[estat.getCellaAgent(a)];
+                if (k >= 0) noves |= c.claus[k];
+            }
+            if (noves == mask) return mask;
+            mask = noves;
+        }
+    }
+
+    /**
+     * @return false si, ni ignorant els altres agents, cap agent pot arribar a la sortida
+     */
+    public boolean esResoluble(Mapa estat) {
+        Components c = components(estat.getTauler(), clausAssolibles(estat));
+        if (c.compSortida < 0) return false;
+        for (int a = 0; a < estat.getNumAgents(); a++) {
+            if (c.comp[estat.getCellaAgent(a)] == c.compSortida) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Agents que no poden contribuir mai a la meta: els dels components (amb la màscara del
+     * punt fix) que no contenen ni la sortida ni cap clau pendent. Cap agent de fora hi pot
+     * entrar, i per tant tampoc no poden fer nosa a ningú.
+     * @return màscara d'agents (bit a -> agent a+1)
+     */
+    public int agentsIrrellevants(Mapa estat) {
+        Components c = components(estat.getTauler(), clausAssolibles(estat));
+        int irrellevants = 0;
+        for (int a = 0; a < estat.getNumAgents(); a++) {
+            int k = c.comp[estat.getCellaAgent(a)];
+            if (k < 0 || k == c.compSortida || (c.claus[k] & ~estat.getClausMask()) != 0) continue;
+            irrellevants |= 1 << a;
+        }
+        return irrellevants;
+    }
+
+    /**
+     * Condició necessària perquè estat sigui un successor (a qualsevol distància) d'origen:
+     * té totes les claus d'origen i només claus assolibles des d'origen, i cada agent és al
+     * mateix component que a origen amb la màscara d'estat.
+     */
+    public boolean esAssolible(Mapa origen, Mapa estat) {
+        return esAssolible(origen, clausAssolibles(origen), estat);
+    }
+
+    /**
+     * Com esAssolible(origen, estat), amb el punt fix d'origen ja calculat
+     * @param clausOrigen clausAssolibles(origen)
+     */
+    public boolean esAssolible(Mapa origen, int clausOrigen, Mapa estat) {
+        int mask = estat.getClausMask();
+        int mask0 = origen.getClausMask();
+        if ((mask & mask0) != mask0 || (mask & ~clausOrigen) != 0) return false;
+        Components c = components(estat.getTauler(), mask);
+        for (int a = 0; a < estat.getNumAgents(); a++) {
+            int k = c.comp[estat.getCellaAgent(a)];
+            if (k < 0 || k != c.comp[origen.getCellaAgent(a)]) return false;
+        }
+        return true;
+    }
+}
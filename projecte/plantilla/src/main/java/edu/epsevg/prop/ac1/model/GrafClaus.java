@@ -0,0 +1,123 @@
+package edu.epsevg.prop.ac1.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Graf de macro-moviments entre punts d'interès: un macro-moviment porta un agent, pel
+ * camí més curt i amb els altres agents quiets (fan de paret), fins a una clau que encara
+ * no tenim o fins a la sortida. Les portes es poden travessar si tenim la seva clau.
+ *
+ * Les claus pendents són punts finals: el camí no hi pot passar per sobre sense aturar-s'hi.
+ * Així, qualsevol camí d'un sol agent es descompon en trams entre dues recollides de
+ * clau consecutives, i cada tram és un macro-moviment: amb un sol agent, la cerca sobre
+ * aquest graf és exacta. Amb diversos agents només troba els camins en què cada agent va
+ * d'un punt d'interès a un altre sense que els altres es moguin entremig.
+ *
+ * Les distàncies es calculen amb un BFS sobre la graella per cada (agent, estat) que es
+ * demana; no es reutilitzen entre estats perquè depenen de la màscara i de la posició dels
+ * altres agents, i a la cerca cada estat s'expandeix un sol cop. No és segur per a fils.
+ */
+public final class GrafClaus implements GrafMacro {
+    private final Tauler tauler;
+    private final int[] dist;    // distància BFS de cada cel·la (-1 = no visitada)
+    private final int[] dirPare; // direcció amb què s'ha arribat a cada cel·la
+    private final int[] pendents; // cua del BFS (en acabar, totes les cel·les visitades)
+    private int numVisitades;
+
+    public GrafClaus(Tauler tauler) {
+        this.tauler = tauler;
+        this.dist = new int[tauler.getNumCelles()];
+        this.dirPare = new int[tauler.getNumCelles()];
+        this.pendents = new int[tauler.getNumCelles()];
+        Arrays.fill(dist, -1);
+    }
+
+    /**
+     * @return claus + sortida
+     */
+    @Override
+    public int getMaxDestins(Mapa estat) {
+        return tauler.getNumClaus() + 1;
+    }
+
+    @Override
+    public int genera(Mapa estat, int agent, int[] destins, int[] costos, int offset) {
+        bfs(estat, agent);
+        int k = offset;
+        for (int i = 0; i < tauler.getNumClaus(); i++) {
+            int c = tauler.getCellaClau(i);
+            if (dist[c] > 0 && (estat.getClausMask() & Tauler.bitClau(tauler.getCella(c))) == 0) {
+                destins[k] = c;
+                costos[k++] = dist[c];
+            }
+        }
+        int s = tauler.getSortida();
+        if (s >= 0 && dist[s] > 0) {
+            destins[k] = s;
+            costos[k++] = dist[s];
+        }
+        neteja();
+        return k - offset;
+    }
+
+    @Override
+    public Mapa aplica(Mapa estat, int agent, int desti) {
+        return estat.desplaca(agent, desti);
+    }
+
+    @Override
+    public List<Moviment> desplega(Mapa estat, int agent, int desti) {
+        bfs(estat, agent);
+        List<Moviment> passos = new ArrayList<>(dist[desti]);
+        boolean recull = Tauler.esClau(tauler.getCella(desti)) && (estat.getClausMask() & Tauler.bitClau(tauler.getCella(desti))) == 0;
+        for (int c = desti; c != estat.getCellaAgent(agent); c = tauler.vei(c, dirPare[c] ^ 1)) {
+            passos.add(tauler.getMoviment(agent, dirPare[c], c == desti && recull));
+        }
+        Collections.reverse(passos);
+        neteja();
+        return passos;
+    }
+
+    /**
+     * BFS des de la cel·la de l'agent. No s'expandeix des de les claus pendents ni des de
+     * la sortida (són punts finals).
+     */
+    private void bfs(Mapa estat, int agent) {
+        int origen = estat.getCellaAgent(agent);
+        int cap = 0, fi = 0;
+        pendents[fi++] = origen;
+        dist[origen] = 0;
+        while (cap < fi) {
+            int c = pendents[cap++];
+            if (c != origen && esFinal(estat, c)) continue;
+            for (int e = tauler.iniciVeins(c), ultim = tauler.fiVeins(c); e < ultim; e++) {
+                int v = tauler.getVei(e);
+                if (dist[v] >= 0 || !transitable(estat, agent, v)) continue;
+                dist[v] = dist[c] + 1;
+                dirPare[v] = tauler.getDireccioVei(e);
+                pendents[fi++] = v;
+            }
+        }
+        numVisitades = fi;
+    }
+
+    private boolean esFinal(Mapa estat, int c) {
+        int cell = tauler.getCella(c);
+        if (c == tauler.getSortida()) return true;
+        return Tauler.esClau(cell) && (estat.getClausMask() & Tauler.bitClau(cell)) == 0;
+    }
+
+    private boolean transitable(Mapa estat, int agent, int c) {
+        int cell = tauler.getCella(c);
+        if (Tauler.esPorta(cell) && (estat.getClausMask() & Tauler.bitClau(cell)) == 0) return false;
+        for (int i = 0; i < estat.getNumAgents(); i++) if (i != agent && estat.getCellaAgent(i) == c) return false;
+        return true;
+    }
+
+    private void neteja() {
+        for (int i = 0; i < numVisitades; i++) dist[pendents[i]] = -1;
+    }
+}
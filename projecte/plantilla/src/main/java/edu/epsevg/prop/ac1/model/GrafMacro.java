@@ -0,0 +1,32 @@
+package edu.epsevg.prop.ac1.model;
+
+import java.util.List;
+
+/**
+ * Generador de macro-moviments: un agent va d'un cop fins a un punt d'interès (una clau
+ * que encara no tenim o la sortida) pel camí més curt, amb els altres agents quiets.
+ * Veure GrafClaus (BFS sobre la graella) i GrafSales (cerca jeràrquica per sales).
+ */
+public interface GrafMacro {
+    /**
+     * @return el nombre màxim de macro-moviments d'un agent des d'un estat
+     */
+    int getMaxDestins(Mapa estat);
+
+    /**
+     * Escriu els macro-moviments de l'agent: a destins[k] la cel·la final i a costos[k]
+     * el nombre de passos.
+     * @return el nombre de macro-moviments escrits a partir d'offset
+     */
+    int genera(Mapa estat, int agent, int[] destins, int[] costos, int offset);
+
+    /**
+     * @return l'estat després del macro-moviment de l'agent fins a desti
+     */
+    Mapa aplica(Mapa estat, int agent, int desti);
+
+    /**
+     * Desplega un macro-moviment en els seus moviments d'una casella, per al camí final.
+     */
+    List<Moviment> desplega(Mapa estat, int agent, int desti);
+}
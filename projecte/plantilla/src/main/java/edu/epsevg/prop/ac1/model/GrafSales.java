@@ -0,0 +1,354 @@
+package edu.epsevg.prop.ac1.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Macro-moviments (com GrafClaus) calculats de forma jeràrquica, a l'estil d'HPA*.
+ *
+ * Preprocés, un sol cop per tauler: el mapa es parteix en sales (components connexos de
+ * cel·les que no són paret ni porta) i es calculen les distàncies dins de cada sala entre
+ * els punts d'interès que la toquen: portes (les entrades entre sales), claus i sortida.
+ * Els camins d'aquestes distàncies no passen per cap altre punt d'interès. El resultat
+ * no depèn de les claus ni dels agents, i es comparteix entre totes les cerques sobre el
+ * mateix tauler.
+ *
+ * Consulta: un Dijkstra sobre el graf abstracte de punts d'interès, on només es pot
+ * entrar a les portes de les claus que tenim i on les claus pendents i la sortida són
+ * punts finals. Si l'agent no és sobre un punt d'interès, s'hi connecta amb un BFS dins
+ * de la seva sala. Els agents quiets que són sobre un punt d'interès el bloquegen; si en
+ * una sala n'hi ha algun fora dels punts d'interès, les distàncies d'aquella sala es
+ * tornen a calcular amb ell com a obstacle. El camí final es refina aresta per aresta
+ * amb un BFS dins de la sala corresponent.
+ *
+ * Dona els mateixos macro-moviments i costos que GrafClaus. En mode relaxat els altres
+ * agents no fan d'obstacle (ni el camí ni el destí): és una relaxació del problema amb
+ * diversos agents, i el cost òptim sobre aquest graf és una cota inferior de l'òptim real.
+ * No és segur per a fils (cada cerca en crea un).
+ */
+public final class GrafSales implements GrafMacro {
+    private static final int INFINIT = Integer.MAX_VALUE;
+
+    // Preprocés per tauler: les Sales no referencien el Tauler, i així la clau és feble
+    private static final Map<Tauler, Sales> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Tauler tauler;
+    private final Sales sales;
+    private final boolean relaxat;
+
+    // BFS local
+    private final int[] dist;
+    private final int[] dirPare;
+    private final int[] pendents;
+
+    // Dijkstra abstracte (un node per punt d'interès, més l'origen si no n'és cap)
+    private final int[] distAbs;
+    private final int[] pare;
+    private final int[] salaPare;
+    private final boolean[] fet;
+    private final boolean[] salaBruta;
+
+    public GrafSales(Tauler tauler) {
+        this(tauler, false);
+    }
+
+    /**
+     * @param relaxat true perquè els altres agents no facin d'obstacle
+     */
+    public GrafSales(Tauler tauler, boolean relaxat) {
+        this.tauler = tauler;
+        this.relaxat = relaxat;
+        this.sales = CACHE.computeIfAbsent(tauler, Sales::new);
+        int cel = tauler.getNumCelles();
+        this.dist = new int[cel];
+        this.dirPare = new int[cel];
+        this.pendents = new int[cel];
+        Arrays.fill(dist, -1);
+        int nodes = sales.pois.length + 1;
+        this.distAbs = new int[nodes];
+        this.pare = new int[nodes];
+        this.salaPare = new int[nodes];
+        this.fet = new boolean[nodes];
+        this.salaBruta = new boolean[sales.numSales];
+    }
+
+    /**
+     * @return el nombre de sales del tauler
+     */
+    public int getNumSales() { return sales.numSales; }
+
+    /**
+     * @return el nombre de punts d'interès (portes, claus i sortida)
+     */
+    public int getNumPunts() { return sales.pois.length; }
+
+    /**
+     * @return claus + sortida
+     */
+    @Override
+    public int getMaxDestins(Mapa estat) {
+        return tauler.getNumClaus() + 1;
+    }
+
+    @Override
+    public int genera(Mapa estat, int agent, int[] destins, int[] costos, int offset) {
+        dijkstra(estat, agent);
+        int k = offset;
+        for (int q = 0; q < sales.pois.length; q++) {
+            if (distAbs[q] != INFINIT && distAbs[q] > 0 && esFinal(estat, q)) {
+                destins[k] = sales.pois[q];
+                costos[k++] = distAbs[q];
+            }
+        }
+        return k - offset;
+    }
+
+    @Override
+    public Mapa aplica(Mapa estat, int agent, int desti) {
+        return estat.desplaca(agent, desti);
+    }
+
+    @Override
+    public List<Moviment> desplega(Mapa estat, int agent, int desti) {
+        int origen = dijkstra(estat, agent);
+        int cellaOrigen = estat.getCellaAgent(agent);
+        List<Moviment> passos = new ArrayList<>(distAbs[sales.poiIndex[desti]]);
+        boolean recull = Tauler.esClau(tauler.getCella(desti)) && (estat.getClausMask() & Tauler.bitClau(tauler.getCella(desti))) == 0;
+        // Arestes abstractes de la meta cap a l'origen; cada una es refina amb un BFS a la seva sala
+        for (int v = sales.poiIndex[desti]; v != origen; v = pare[v]) {
+            int u = pare[v];
+            int de = u == sales.pois.length ? cellaOrigen : sales.pois[u];
+            int fins = sales.pois[v];
+            int visitades = bfs(tauler, sales, de, salaPare[v], relaxat ? null : estat, agent, dist, dirPare, pendents);
+            for (int c = fins; c != de; c = tauler.vei(c, dirPare[c] ^ 1)) {
+                passos.add(tauler.getMoviment(agent, dirPare[c], c == desti && recull));
+            }
+            neteja(visitades);
+        }
+        Collections.reverse(passos);
+        return passos;
+    }
+
+    /**
+     * Dijkstra sobre els punts d'interès des de la cel·la de l'agent
+     * @return el node origen (el punt d'interès de l'agent, o pois.length si no n'és cap)
+     */
+    private int dijkstra(Mapa estat, int agent) {
+        int numPois = sales.pois.length;
+        int cellaOrigen = estat.getCellaAgent(agent);
+        int origen = sales.poiIndex[cellaOrigen] >= 0 ? sales.poiIndex[cellaOrigen] : numPois;
+
+        // Sales amb un altre agent fora dels punts d'interès: distàncies precalculades no vàlides
+        Arrays.fill(salaBruta, false);
+        for (int i = 0; i < estat.getNumAgents() && !relaxat; i++) {
+            int c = estat.getCellaAgent(i);
+            if (i != agent && sales.poiIndex[c] < 0) salaBruta[sales.sala[c]] = true;
+        }
+
+        Arrays.fill(distAbs, INFINIT);
+        Arrays.fill(fet, false);
+        distAbs[origen] = 0;
+        pare[origen] = -1;
+        while (true) {
+            int u = -1;
+            for (int i = 0; i <= numPois; i++) {
+                if (!fet[i] && distAbs[i] != INFINIT && (u < 0 || distAbs[i] < distAbs[u])) u = i;
+            }
+            if (u < 0) break;
+            fet[u] = true;
+            if (u != origen && esFinal(estat, u)) continue;
+
+            if (u == numPois) {
+                relaxaBfs(estat, agent, u, cellaOrigen, sales.sala[cellaOrigen]);
+                continue;
+            }
+            for (int e = sales.arestaInici[u]; e < sales.arestaInici[u + 1]; e++) {
+                if (!salaBruta[sales.arestaSala[e]]) relaxa(estat, agent, u, sales.arestaDesti[e], distAbs[u] + sales.arestaCost[e], sales.arestaSala[e]);
+            }
+            for (int i = sales.salesPoiInici[u]; i < sales.salesPoiInici[u + 1]; i++) {
+                int r = sales.salesPoi[i];
+                if (salaBruta[r]) relaxaBfs(estat, agent, u, sales.pois[u], r);
+            }
+        }
+        return origen;
+    }
+
+    /**
+     * Relaxa les arestes de u dins de la sala r calculant-les amb un BFS amb els altres agents
+     */
+    private void relaxaBfs(Mapa estat, int agent, int u, int cella, int r) {
+        int visitades = bfs(tauler, sales, cella, r, relaxat ? null : estat, agent, dist, dirPare, pendents);
+        for (int i = 1; i < visitades; i++) {
+            int q = sales.poiIndex[pendents[i]];
+            if (q >= 0) relaxa(estat, agent, u, q, distAbs[u] + dist[pendents[i]], r);
+        }
+        neteja(visitades);
+    }
+
+    private void relaxa(Mapa estat, int agent, int u, int q, int d, int r) {
+        if (fet[q] || d >= distAbs[q] || !entrable(estat, agent, q)) return;
+        distAbs[q] = d;
+        pare[q] = u;
+        salaPare[q] = r;
+    }
+
+    /**
+     * @return true si l'agent pot arribar al punt q: no hi ha cap altre agent (fora del
+     *         mode relaxat) i, si és una porta, en tenim la clau
+     */
+    private boolean entrable(Mapa estat, int agent, int q) {
+        int c = sales.pois[q];
+        int cell = tauler.getCella(c);
+        if (Tauler.esPorta(cell) && (estat.getClausMask() & Tauler.bitClau(cell)) == 0) return false;
+        for (int i = 0; i < estat.getNumAgents() && !relaxat; i++) if (i != agent && estat.getCellaAgent(i) == c) return false;
+        return true;
+    }
+
+    /**
+     * @return true si el punt q acaba el macro-moviment (clau pendent o sortida)
+     */
+    private boolean esFinal(Mapa estat, int q) {
+        int c = sales.pois[q];
+        int cell = tauler.getCella(c);
+        if (c == tauler.getSortida()) return true;
+        return Tauler.esClau(cell) && (estat.getClausMask() & Tauler.bitClau(cell)) == 0;
+    }
+
+    private void neteja(int visitades) {
+        for (int i = 0; i < visitades; i++) dist[pendents[i]] = -1;
+    }
+
+    /**
+     * BFS des d'origen restringit a la sala r: els punts d'interès es visiten però no
+     * s'expandeixen, i les cel·les dels altres agents (si estat no és null) són obstacles.
+     * En acabar, les cel·les visitades són pendents[0..n) amb la distància a dist.
+     * @return n, el nombre de cel·les visitades (que s'han de netejar de dist)
+     */
+    private static int bfs(Tauler t, Sales s, int origen, int r, Mapa estat, int agent, int[] dist, int[] dirPare, int[] pendents) {
+        int cap = 0, fi = 0;
+        pendents[fi++] = origen;
+        dist[origen] = 0;
+        while (cap < fi) {
+            int c = pendents[cap++];
+            if (c != origen && s.poiIndex[c] >= 0) continue;
+            for (int e = t.iniciVeins(c), ultim = t.fiVeins(c); e < ultim; e++) {
+                int v = t.getVei(e);
+                if (dist[v] >= 0 || (s.poiIndex[v] < 0 && s.sala[v] != r)) continue;
+                if (estat != null && ocupadaPerAltre(estat, agent, v)) continue;
+                dist[v] = dist[c] + 1;
+                dirPare[v] = t.getDireccioVei(e);
+                pendents[fi++] = v;
+            }
+        }
+        return fi;
+    }
+
+    private static boolean ocupadaPerAltre(Mapa estat, int agent, int c) {
+        for (int i = 0; i < estat.getNumAgents(); i++) if (i != agent && estat.getCellaAgent(i) == c) return true;
+        return false;
+    }
+
+    /**
+     * Preprocés d'un tauler: sales, punts d'interès i distàncies dins de cada sala
+     */
+    private static final class Sales {
+        final int[] sala;         // sala de cada cel·la (-1 per parets i portes)
+        final int numSales;
+        final int[] pois;         // cel·la de cada punt d'interès
+        final int[] poiIndex;     // punt d'interès de cada cel·la (-1 si no n'és cap)
+        // Sales que toca cada punt (la seva, o les del voltant si és una porta), en CSR
+        final int[] salesPoiInici;
+        final int[] salesPoi;
+        // Arestes de cada punt en CSR: destí, cost i sala per on passa
+        final int[] arestaInici;
+        final int[] arestaDesti;
+        final int[] arestaCost;
+        final int[] arestaSala;
+
+        Sales(Tauler t) {
+            int cel = t.getNumCelles();
+
+            // Punts d'interès: portes, claus i sortida
+            List<Integer> punts = new ArrayList<>();
+            for (int i = 0; i < t.getNumPortes(); i++) punts.add(t.getCellaPorta(i));
+            for (int i = 0; i < t.getNumClaus(); i++) punts.add(t.getCellaClau(i));
+            punts.add(t.getSortida());
+            pois = punts.stream().mapToInt(Integer::intValue).toArray();
+            poiIndex = new int[cel];
+            Arrays.fill(poiIndex, -1);
+            for (int p = 0; p < pois.length; p++) poiIndex[pois[p]] = p;
+
+            // Sales: components connexos sense travessar portes
+            sala = new int[cel];
+            Arrays.fill(sala, -1);
+            int[] cua = new int[cel];
+            int n = 0;
+            for (int i = 0; i < cel; i++) {
+                if (sala[i] >= 0 || t.getCella(i) == Mapa.PARET || Tauler.esPorta(t.getCella(i))) continue;
+                int cap = 0, fi = 0;
+                cua[fi++] = i;
+                sala[i] = n;
+                while (cap < fi) {
+                    int c = cua[cap++];
+                    for (int e = t.iniciVeins(c); e < t.fiVeins(c); e++) {
+                        int v = t.getVei(e);
+                        if (sala[v] >= 0 || Tauler.esPorta(t.getCella(v))) continue;
+                        sala[v] = n;
+                        cua[fi++] = v;
+                    }
+                }
+                n++;
+            }
+            numSales = n;
+
+            salesPoiInici = new int[pois.length + 1];
+            List<Integer> llistaSales = new ArrayList<>();
+            for (int p = 0; p < pois.length; p++) {
+                salesPoiInici[p] = llistaSales.size();
+                int c = pois[p];
+                if (sala[c] >= 0) {
+                    llistaSales.add(sala[c]);
+                } else {
+                    for (int e = t.iniciVeins(c); e < t.fiVeins(c); e++) {
+                        int r = sala[t.getVei(e)];
+                        if (r >= 0 && !llistaSales.subList(salesPoiInici[p], llistaSales.size()).contains(r)) llistaSales.add(r);
+                    }
+                }
+            }
+            salesPoiInici[pois.length] = llistaSales.size();
+            salesPoi = llistaSales.stream().mapToInt(Integer::intValue).toArray();
+
+            // Distàncies dins de cada sala, sense agents
+            int[] dist = new int[cel];
+            int[] dirPare = new int[cel];
+            Arrays.fill(dist, -1);
+            List<int[]> arestes = new ArrayList<>();
+            arestaInici = new int[pois.length + 1];
+            for (int p = 0; p < pois.length; p++) {
+                arestaInici[p] = arestes.size();
+                for (int i = salesPoiInici[p]; i < salesPoiInici[p + 1]; i++) {
+                    int r = salesPoi[i];
+                    int visitades = bfs(t, this, pois[p], r, null, -1, dist, dirPare, cua);
+                    for (int j = 1; j < visitades; j++) {
+                        int q = poiIndex[cua[j]];
+                        if (q >= 0) arestes.add(new int[]{q, dist[cua[j]], r});
+                    }
+                    for (int j = 0; j < visitades; j++) dist[cua[j]] = -1;
+                }
+            }
+            arestaInici[pois.length] = arestes.size();
+            arestaDesti = new int[arestes.size()];
+            arestaCost = new int[arestes.size()];
+            arestaSala = new int[arestes.size()];
+            for (int e = 0; e < arestes.size(); e++) {
+                arestaDesti[e] = arestes.get(e)[0];
+                arestaCost[e] = arestes.get(e)[1];
+                arestaSala[e] = arestes.get(e)[2];
+            }
+        }
+    }
+}
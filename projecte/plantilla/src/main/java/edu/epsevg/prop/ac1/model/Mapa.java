@@ -6,8 +6,10 @@ import java.nio.file.Path;
 import java.util.*;
 
 /**
- * Representa l'estat del mapa: grid, posicions agents (indexades per id 1..n),
- * i bitmask de claus.
+ * Representa l'estat del mapa: posicions agents (indexades per id 1..n)
+ * i bitmask de claus. La part estàtica (parets, portes, claus, sortida) és un
+ * Tauler compartit per tots els estats del mateix mapa; el contingut de les
+ * cel·les de clau es dedueix de la màscara (una clau recollida es veu com ESPAI).
  *
  * Codifiquem:
  *  - PARET = -1
@@ -17,24 +19,30 @@ import java.util.*;
  *  - portes: ascii 'A'..'Z' (valors positius > 0)
  */
 public class Mapa {
-    private final int n;
-    private final int m;
-    private final int[][] grid; // conservem caràcters ordinals o codis
-    private final List<Posicio> agents; // agents indexats a partir de 1 (index 0 -> agent 1)
+    private final Tauler tauler;
+    private final int[] agents; // índex de cel·la de cada agent (index 0 -> agent 1)
     private int clausMask;
-    private Posicio sortida;
-    
+    private long hash; // hash de Zobrist de (agents, clausMask), mantingut incrementalment
+    // Reducció d'ordre parcial: SENSE_ORDRE_PARCIAL si no està activada; si ho està, els
+    // moviments que l'ordre canònic no deixa fer des d'aquest estat (bit agent*4 + direcció)
+    private long podats = SENSE_ORDRE_PARCIAL;
+    private static final long SENSE_ORDRE_PARCIAL = -1L;
+    private static final int MAX_AGENTS_PODATS = 15;
+    // Agents congelats (bit a): no poden contribuir a la meta i no es mouen mai (veure
+    // calculaCongelats). No forma part de la identitat: és el mateix per tots els estats d'una cerca
+    private int congelats;
+
     /**
      * Definicions dels valors del grid: PARET
      */
     public static final int PARET = -1;
     /**
      * Definicions dels valors del grid: ESPAI
-     */    
+     */
     public static final int ESPAI = 0;
     /**
      * Definicions dels valors del grid: SORTIDA
-     */    
+     */
     public static final int SORTIDA = -2;
 
     /**
@@ -42,80 +50,94 @@ public class Mapa {
      */
     public Mapa(Path fitxer) throws IOException {
         List<String> lines = Files.readAllLines(fitxer);
-        this.n = lines.size();
-        this.m = lines.get(0).length();
-        this.grid = new int[n][m];
-        this.agents = new ArrayList<>();
+        int n = lines.size();
+        int m = lines.get(0).length();
+        byte[] cel = new byte[n * m];
+        List<Integer> ags = new ArrayList<>();
         this.clausMask = 0;
-        
-        sortida = null;
-        
+
         for (int i = 0; i < n; i++) {
             String row = lines.get(i);
             for (int j = 0; j < m; j++) {
                 char c = row.charAt(j);
+                int idx = i * m + j;
                 switch (c) {
-                    case '#': grid[i][j] = PARET; break;
-                    case ' ': grid[i][j] = ESPAI; break;
-                    case '@': grid[i][j] = SORTIDA; sortida = new Posicio(i,j); break;
+                    case '#': cel[idx] = PARET; break;
+                    case ' ': cel[idx] = ESPAI; break;
+                    case '@': cel[idx] = SORTIDA; break;
                     default:
                         if (Character.isDigit(c)) {
                             // posem l'agent, però __NO__ es situa a la graella
-                            agents.add(new Posicio(i, j));
-                            grid[i][j] = ESPAI;
-                        } else if (Character.isLowerCase(c)) {
-                            grid[i][j] = c; // desem directament la lletra
-                        } else if (Character.isUpperCase(c)) {
-                            grid[i][j] = c; // desem directament la lletra
+                            ags.add(idx);
+                            cel[idx] = ESPAI;
+                        } else if (Tauler.esClau(c) || Tauler.esPorta(c)) {
+                            cel[idx] = (byte) c; // desem directament la lletra
                         } else {
-                            grid[i][j] = ESPAI;
+                            cel[idx] = ESPAI;
                         }
                 }
             }
         }
-        if(sortida==null) throw new RuntimeException("Sortida no definida.");
-        if(agents.size()==0) throw new RuntimeException("Agents no definits.");
+        if(ags.size()==0) throw new RuntimeException("Agents no definits.");
+
+        this.tauler = new Tauler(n, m, cel, ags.size());
+        this.agents = new int[ags.size()];
+        for (int i = 0; i < agents.length; i++) agents[i] = ags.get(i);
+        this.hash = tauler.zobrist(agents, clausMask);
+        calculaCongelats();
     }
 
-    /** 
-     * Constructor còpia 
-     * Fa una "Deep copy" del mapa (duplica en memòria i copia tots els valors d'un a l'altre) 
+    /**
+     * Constructor còpia
+     * Copia l'estat (posició dels agents i claus); el tauler es comparteix perquè és immutable.
      * @param other
      */
     public Mapa(Mapa other) {
-        this.n = other.n;
-        this.m = other.m;
-        this.grid = new int[n][m];
-        for (int i = 0; i < n; i++) System.arraycopy(other.grid[i], 0, this.grid[i], 0, m);
-        
-        this.agents = new ArrayList<>();
-        for (Posicio p : other.agents) this.agents.add(new Posicio(p.x, p.y));
-        this.clausMask = other.clausMask;
-        this.sortida = other.sortida; // LINIA AFEGIDA !
+        this(other.tauler, other.agents.clone(), other.clausMask, other.hash);
+        this.podats = other.podats;
+        this.congelats = other.congelats;
+    }
+
+    /**
+     * Construeix un estat sobre un tauler existent (no copia el vector d'agents).
+     */
+    Mapa(Tauler tauler, int[] agents, int clausMask) {
+        this(tauler, agents, clausMask, tauler.zobrist(agents, clausMask));
+    }
+
+    private Mapa(Tauler tauler, int[] agents, int clausMask, long hash) {
+        this.tauler = tauler;
+        this.agents = agents;
+        this.clausMask = clausMask;
+        this.hash = hash;
     }
 
     /**
      * Número de columnes
      * @return el nombre de columnes
      */
-    public int getN() { return n; }
-    
+    public int getN() { return tauler.getN(); }
+
     /**
      * Número de files
      * @return el nombre de files
      */
-    public int getM() { return m; }
-    
+    public int getM() { return tauler.getM(); }
+
     /**
      * @return Retorna la llista immutable de la posició dels agents
      */
-    public List<Posicio> getAgents() { return Collections.unmodifiableList(agents); }
-    
+    public List<Posicio> getAgents() {
+        List<Posicio> res = new ArrayList<>(agents.length);
+        for (int a : agents) res.add(tauler.posicio(a));
+        return Collections.unmodifiableList(res);
+    }
+
     /**
      * @return la màscara binària en format int de les claus. Cada clau és un bit, començant per la a (bit menys significant),b,c...
      *    P.ex. Si hi ha 3 claus, a, b i c, i tenim agafada la b i la c, la màscara val 6 (110 en binari)
      *          cba
-     *          110 
+     *          110
      */
     public int getClausMask() { return clausMask; }
 
@@ -131,16 +153,17 @@ public class Mapa {
      * @return el valor de la cella (veure constants PARET, ESPAI, SORTIDA)
      */
     private int getCell(Posicio p) {
-        if (p.x < 0 || p.x >= n || p.y < 0 || p.y >= m) return PARET;
-        return grid[p.x][p.y];
+        if (p.x < 0 || p.x >= tauler.getN() || p.y < 0 || p.y >= tauler.getM()) return PARET;
+        return getCellIndex(tauler.index(p.x, p.y));
     }
 
     /**
-     * Indicar que una clau ha estat recollida
+     * @return el valor de la cel·la amb índex pla idx, amb les claus ja recollides com ESPAI
      */
-    private void setClauRecollida(char key) {
-        int idx = key - 'a';
-        clausMask |= (1 << idx);
+    private int getCellIndex(int idx) {
+        int c = tauler.getCella(idx);
+        if (Tauler.esClau(c) && (clausMask & Tauler.bitClau(c)) != 0) return ESPAI;
+        return c;
     }
 
     /**
@@ -163,179 +186,350 @@ public class Mapa {
         return teClau(key);
     }
 
-    /** 
+    /**
      * Aplica el moviment SOBRE UNA CÒPIA (no altera el mapa actual)
      * @return  la nova instància amb el moviment
      * ja fet.
      */
     public Mapa mou(Moviment acc) {
-        Mapa nou = new Mapa(this);
         int aid = acc.getAgentId();
-        if (aid < 1 || aid > nou.agents.size()) throw new IllegalArgumentException("Agent id invalid");
-        Posicio actual = nou.agents.get(aid - 1);
-        Posicio dest = actual.translate(acc.getDireccio());
+        if (aid < 1 || aid > agents.length) throw new IllegalArgumentException("Agent id invalid");
+        int desti = tauler.vei(agents[aid - 1], acc.getDireccio());
 
-        int cell = nou.getCell(dest);
-        if (cell == PARET) throw new IllegalArgumentException("Moviment cap a mur");
-        if (Character.isUpperCase(cell)) {
+        if (desti < 0) throw new IllegalArgumentException("Moviment cap a mur");
+        int cell = getCellIndex(desti);
+        if (Tauler.esPorta(cell)) {
             // porta
-            if (!nou.portaObrible((char) cell)) throw new IllegalArgumentException("Porta tancada");
+            if ((clausMask & Tauler.bitClau(cell)) == 0) throw new IllegalArgumentException("Porta tancada");
         }
         // no permetre col·lisions
-        for (int i = 0; i < nou.agents.size(); i++) {
+        for (int i = 0; i < agents.length; i++) {
             if (i == aid-1) continue;
-            Posicio p = nou.agents.get(i);
-            if (p.equals(dest)) throw new IllegalArgumentException("Colisio amb altre agent");
+            if (agents[i] == desti) throw new IllegalArgumentException("Colisio amb altre agent");
         }
-        // aplicar moviment
-        nou.agents.set(aid - 1, dest);
-        // si hi ha clau i no la teniem, recollir-la (si acc.isRecullClau() es true o si la cell té clau)
-        if (Character.isLowerCase(cell)) {
-            char key = (char) cell;
-            if (!nou.teClau(key)) {
-                // recollir
-                nou.setClauRecollida(key);                
-                nou.grid[dest.x][dest.y] = ESPAI;
-            }
+        // aplicar moviment (el hash s'actualitza amb dos o tres XOR)
+        int[] nousAgents = agents.clone();
+        nousAgents[aid - 1] = desti;
+        long nouHash = hash ^ tauler.zobristAgent(aid - 1, agents[aid - 1]) ^ tauler.zobristAgent(aid - 1, desti);
+        // si hi ha clau i no la teniem, recollir-la (la cel·la passa a veure's com ESPAI)
+        int novaMask = clausMask;
+        if (Tauler.esClau(cell)) {
+            novaMask |= Tauler.bitClau(cell);
+            nouHash ^= tauler.zobristClau(cell);
+        }
+        Mapa nou = new Mapa(tauler, nousAgents, novaMask, nouHash);
+        nou.congelats = congelats;
+        if (podats != SENSE_ORDRE_PARCIAL) {
+            nou.podats = nou.podatsDespres(aid - 1, agents[aid - 1], Tauler.esClau(cell) ? Character.toUpperCase(cell) : -1);
         }
         return nou;
     }
 
-    /** 
+    /**
+     * Aplica el moviment SOBRE AQUEST MATEIX estat, sense validar-lo ni crear cap objecte.
+     * Pensat per les cerques en profunditat amb pila explícita, que el desfan en tornar
+     * enrere (veure desfes). Només s'ha de fer servir sobre una còpia pròpia (new Mapa(altre)),
+     * mai sobre un estat que altres estructures puguin tenir referenciat. No actualitza els
+     * moviments podats per la reducció d'ordre parcial: no s'ha d'activar en aquest mode.
+     * @param acc un moviment vàlid d'entre els de accionsPossibles()
+     */
+    public void aplica(Moviment acc) {
+        int a = acc.getAgentId() - 1;
+        int origen = agents[a];
+        int desti = tauler.vei(origen, acc.getDireccio());
+        agents[a] = desti;
+        hash ^= tauler.zobristAgent(a, origen) ^ tauler.zobristAgent(a, desti);
+        if (acc.isRecullClau()) {
+            int cell = tauler.getCella(desti);
+            clausMask |= Tauler.bitClau(cell);
+            hash ^= tauler.zobristClau(cell);
+        }
+    }
+
+    /**
+     * Còpia de l'estat amb l'agent (índex 0 -&gt; agent 1) portat directament a la cel·la
+     * desti, recollint-hi la clau si n'hi ha una que no teníem. No valida el recorregut:
+     * és per a generadors de moviments compostos (veure Salts).
+     */
+    Mapa desplaca(int agent, int desti) {
+        int[] nousAgents = agents.clone();
+        nousAgents[agent] = desti;
+        long nouHash = hash ^ tauler.zobristAgent(agent, agents[agent]) ^ tauler.zobristAgent(agent, desti);
+        int novaMask = clausMask;
+        int cell = getCellIndex(desti);
+        if (Tauler.esClau(cell)) {
+            novaMask |= Tauler.bitClau(cell);
+            nouHash ^= tauler.zobristClau(cell);
+        }
+        Mapa nou = new Mapa(tauler, nousAgents, novaMask, nouHash);
+        nou.congelats = congelats;
+        if (podats != SENSE_ORDRE_PARCIAL) nou.podats = 0;
+        return nou;
+    }
+
+    /**
+     * Desfà un moviment fet amb aplica (ha de ser l'últim aplicat que no s'ha desfet).
+     */
+    public void desfes(Moviment acc) {
+        int a = acc.getAgentId() - 1;
+        int desti = agents[a];
+        // la cel·la d'origen és la veïna en la direcció oposada (AMUNT<->AVALL, ESQUERRA<->DRETA)
+        int origen = tauler.vei(desti, acc.getDireccio().ordinal() ^ 1);
+        agents[a] = origen;
+        hash ^= tauler.zobristAgent(a, origen) ^ tauler.zobristAgent(a, desti);
+        if (acc.isRecullClau()) {
+            int cell = tauler.getCella(desti);
+            clausMask &= ~Tauler.bitClau(cell);
+            hash ^= tauler.zobristClau(cell);
+        }
+    }
+
+    /**
      * Obtenir els moviments possibles des de l'estat actual
      * @return la llista de moviments possibles des de l'estat actual:
      * per cada agent (1..k) i cada direcció valida
      * indica recullClau=true si el destí té una clau que encara no s'ha recollit
      */
-    //@TODO: A IMPLEMENTAR !!!!!!
-
     public List<Moviment> getAccionsPossibles() {
-        List<Moviment> res = new ArrayList<>();
-        int numAgents = agents.size();
-
-        // Per cada agent
-        for (int aid = 1; aid <= numAgents; aid++) {
-            Posicio actual = agents.get(aid - 1); 
+        Moviment[] buffer = new Moviment[getMaxAccions()];
+        int n = accionsPossibles(buffer, 0);
+        return new ArrayList<>(Arrays.asList(buffer).subList(0, n));
+    }
 
-            // Per cada direcció possible
-            for (Direccio dir : Direccio.values()) {
-                Posicio dest = actual.translate(dir); 
+    /**
+     * Versió sense reserves de memòria de getAccionsPossibles(), pensada pel bucle intern
+     * de les cerques: escriu els moviments vàlids (en el mateix ordre) a partir de
+     * desti[offset] i en retorna el nombre. Recorre la taula de veïns precalculada del
+     * tauler i fa servir els Moviment preconstruïts, de manera que no crea cap objecte.
+     * @param desti vector on escriure els moviments (almenys getMaxAccions() posicions lliures)
+     * @param offset primera posició a escriure
+     * @return el nombre de moviments escrits
+     */
+    public int accionsPossibles(Moviment[] desti, int offset) {
+        int k = offset;
+        for (int a = 0; a < agents.length; a++) k += accionsAgent(a, desti, k);
+        return k - offset;
+    }
 
-                // Validar si és dins dels límits i no és paret
-                int cell = getCell(dest);
-                if (cell == PARET) continue;  
+    /**
+     * Com accionsPossibles, però només amb els moviments d'un agent
+     * @param agent índex de l'agent (0 = agent 1)
+     * @param desti vector on escriure els moviments (almenys 4 posicions lliures)
+     * @param offset primera posició a escriure
+     * @return el nombre de moviments escrits
+     */
+    private int accionsAgent(int agent, Moviment[] desti, int offset) {
+        if (esCongelat(agent)) return 0;
+        int k = offset;
+        int actual = agents[agent];
+        for (int e = tauler.iniciVeins(actual), fi = tauler.fiVeins(actual); e < fi; e++) {
+            int dest = tauler.getVei(e);
+            int cell = getCellIndex(dest);
+
+            // Validar portes: només si són obribles amb claus actuals
+            if (Tauler.esPorta(cell) && (clausMask & Tauler.bitClau(cell)) == 0) continue;
+
+            // Validar col·lisions amb altres agents
+            if (ocupada(dest)) continue;
+
+            // Reducció d'ordre parcial
+            int dir = tauler.getDireccioVei(e);
+            if (podats > 0 && ((podats >>> (agent * 4 + dir)) & 1) != 0) continue;
+
+            // Les claus ja recollides es veuen com ESPAI
+            desti[k++] = tauler.getMoviment(agent, dir, Tauler.esClau(cell));
+        }
+        return k - offset;
+    }
 
-                // Validar portes: només si són obribles amb claus actuals
-                if (Character.isUpperCase(cell)) {
-                    if (!portaObrible((char) cell)) continue; 
-                }
+    /**
+     * @return el nombre màxim de moviments que pot tenir un estat (4 per agent)
+     */
+    public int getMaxAccions() { return agents.length * 4; }
 
-                // Validar col·lisions amb altres agents (excloent l'agent actual)
-                boolean colisio = false;
-                for (int i = 0; i < numAgents; i++) {
-                    if (i == aid - 1) continue;  
-                    if (agents.get(i).equals(dest)) {
-                        colisio = true;
-                        break;
+    /**
+     * Generació inversa, per a les cerques enrere: escriu a estats[offset..] els estats
+     * predecessors (els que amb un sol moviment porten a aquest) i a accions[offset..] el
+     * moviment que fa la transició predecessor -&gt; aquest estat.
+     *
+     * Si l'agent és sobre una clau que tenim, el predecessor pot ser tant l'estat que ja la
+     * tenia (moviment normal) com el que encara no (moviment que la recull). Es descarten els
+     * predecessors incoherents (veure esCoherent). Els agents congelats no es mouen.
+     * @param estats vector on escriure els predecessors (almenys getMaxAntecessors() posicions lliures)
+     * @param accions vector paral·lel on escriure els moviments
+     * @param offset primera posició a escriure
+     * @return el nombre de predecessors escrits
+     */
+    public int antecessors(Mapa[] estats, Moviment[] accions, int offset) {
+        int k = offset;
+        for (int a = 0; a < agents.length; a++) {
+            if (esCongelat(a)) continue;
+            int actual = agents[a];
+            int cell = tauler.getCella(actual);
+            // amb la clau no recollida l'agent no podria ser aquí; sense clau, només el cas normal
+            int variants = Tauler.esClau(cell) ? 2 : 1;
+            for (int e = tauler.iniciVeins(actual), fi = tauler.fiVeins(actual); e < fi; e++) {
+                int origen = tauler.getVei(e);
+                if (ocupada(origen)) continue;
+                // el moviment de l'origen cap a l'actual té la direcció oposada (AMUNT<->AVALL, ESQUERRA<->DRETA)
+                int dir = tauler.getDireccioVei(e) ^ 1;
+                long hashAgent = hash ^ tauler.zobristAgent(a, actual) ^ tauler.zobristAgent(a, origen);
+                for (int v = 0; v < variants; v++) {
+                    boolean recull = v == 1;
+                    int mask = clausMask;
+                    long h = hashAgent;
+                    if (recull) {
+                        mask &= ~Tauler.bitClau(cell);
+                        h ^= tauler.zobristClau(cell);
                     }
+                    int[] nousAgents = agents.clone();
+                    nousAgents[a] = origen;
+                    if (!esCoherent(tauler, nousAgents, mask)) continue;
+                    estats[k] = new Mapa(tauler, nousAgents, mask, h);
+                    estats[k].congelats = congelats;
+                    accions[k] = tauler.getMoviment(a, dir, recull);
+                    k++;
                 }
-                if (colisio) continue; 
+            }
+        }
+        return k - offset;
+    }
 
-                boolean recullClau = false;
-                if (Character.isLowerCase(cell)) {
-                    char key = (char) cell;
-                    if (!teClau(key)) {  
-                        recullClau = true;
-                    }
-                }
+    /**
+     * @return el nombre màxim de predecessors que pot tenir un estat (8 per agent)
+     */
+    public int getMaxAntecessors() { return agents.length * 8; }
+
+    /**
+     * Un estat és coherent si cap agent és sobre una porta sense tenir-ne la clau ni sobre
+     * una clau que no ha recollit: els estats incoherents no són assolibles des de cap estat
+     * inicial (els agents sempre comencen sobre cel·les lliures).
+     */
+    private static boolean esCoherent(Tauler tauler, int[] agents, int mask) {
+        for (int a : agents) {
+            int c = tauler.getCella(a);
+            if ((Tauler.esClau(c) || Tauler.esPorta(c)) && (mask & Tauler.bitClau(c)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Enumera tots els estats meta coherents sobre el mateix tauler: algun agent a la
+     * sortida, els altres a qualsevol cel·la lliure i qualsevol combinació de les claus
+     * que hi ha al mapa. Els agents congelats són sempre a la seva cel·la.
+     * @param maxim nombre màxim d'estats a generar
+     * @return la llista d'estats meta, o null si n'hi ha més de maxim
+     */
+    public List<Mapa> estatsMeta(int maxim) {
+        int lliures = 0;
+        for (int i = 0; i < tauler.getNumCelles(); i++) if (tauler.getCella(i) != PARET) lliures++;
+        int totesClaus = 0;
+        for (int i = 0; i < tauler.getNumClaus(); i++) totesClaus |= Tauler.bitClau(tauler.getCella(tauler.getCellaClau(i)));
+
+        // cota superior abans d'enumerar: agents * variacions de la resta * subconjunts de claus
+        double cota = (double) agents.length * (1 << Integer.bitCount(totesClaus));
+        for (int i = 1; i < agents.length; i++) cota *= lliures - i;
+        if (cota > maxim) return null;
+
+        List<Mapa> metes = new ArrayList<>();
+        int[] posicions = new int[agents.length];
+        for (int a = 0; a < agents.length; a++) {
+            if (esCongelat(a)) continue;
+            posicions[a] = tauler.getSortida();
+            enumeraMetes(posicions, 0, a, totesClaus, metes);
+        }
+        return metes;
+    }
 
-                // Afegir el moviment vàlid
-                res.add(new Moviment(aid, dir, recullClau));
+    private void enumeraMetes(int[] posicions, int agent, int fix, int totesClaus, List<Mapa> metes) {
+        if (agent == posicions.length) {
+            // tots els subconjunts de totesClaus
+            for (int mask = totesClaus; ; mask = (mask - 1) & totesClaus) {
+                if (esCoherent(tauler, posicions, mask)) {
+                    Mapa meta = new Mapa(tauler, posicions.clone(), mask);
+                    meta.congelats = congelats;
+                    metes.add(meta);
+                }
+                if (mask == 0) break;
             }
+            return;
+        }
+        if (esCongelat(agent)) {
+            posicions[agent] = agents[agent];
+            enumeraMetes(posicions, agent + 1, fix, totesClaus, metes);
+            return;
+        }
+        if (agent == fix) {
+            enumeraMetes(posicions, agent + 1, fix, totesClaus, metes);
+            return;
         }
-        return res;
+        for (int c = 0; c < tauler.getNumCelles(); c++) {
+            if (tauler.getCella(c) == PARET || c == tauler.getSortida()) continue;
+            boolean ocupadaPerUnAltre = false;
+            for (int i = 0; i < agent; i++) if (i != fix && posicions[i] == c) ocupadaPerUnAltre = true;
+            for (int i = agent + 1; i < posicions.length; i++) if (esCongelat(i) && agents[i] == c) ocupadaPerUnAltre = true;
+            if (ocupadaPerUnAltre) continue;
+            posicions[agent] = c;
+            enumeraMetes(posicions, agent + 1, fix, totesClaus, metes);
+        }
+    }
+
+    /**
+     * @return true si algun agent ocupa la cel·la idx
+     */
+    private boolean ocupada(int idx) {
+        for (int a : agents) if (a == idx) return true;
+        return false;
     }
 
-    /** 
+    /**
      * Permet saber si algú ha arribat a la sortida
-     * @return true si algun agent ha arribat a la sortida 
+     * @return true si algun agent ha arribat a la sortida
      */
     public boolean esMeta() {
-        for (Posicio p : agents) if (esSortida(p)) return true;
+        int sortida = tauler.getSortida();
+        for (int a : agents) if (a == sortida) return true;
         return false;
     }
 
+    /**
+     * Dos estats són iguals si tenen la mateixa clau empaquetada (agents + màscara de claus).
+     * Només cal comparar el tauler quan els dos estats no el comparteixen.
+     */
     @Override
-    //@TODO: A IMPLEMENTAR !!!!!!
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Mapa)) return false;
 
         Mapa mapa = (Mapa) o;
-
-        // Comparar dimensions
-        if (n != mapa.n || m != mapa.m) return false;
-
-        // Comparar màscara de claus
-        if (clausMask != mapa.clausMask) return false;
-
-        // Comparar posicions d'agents
-        if (!agents.equals(mapa.agents)) return false;
-
-        // Comparar grid (totes les cel·les)
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                if (grid[i][j] != mapa.grid[i][j]) return false;
-            }
-        }
-
-        // Comparar posició de sortida
-        if (sortida != null ? !sortida.equals(mapa.sortida) : mapa.sortida != null) return false;
-
-        return true;
+        if (hash != mapa.hash || clausMask != mapa.clausMask || podats != mapa.podats) return false;
+        if (!Arrays.equals(agents, mapa.agents)) return false;
+        return tauler == mapa.tauler || tauler.equals(mapa.tauler);
     }
 
+    /**
+     * Hash de Zobrist desat a l'estat: O(1), no es recalcula mai.
+     */
     @Override
-    //@TODO: A IMPLEMENTAR !!!!!!
     public int hashCode() {
-        int result = 31;  // Factor primer per combinacions
-
-        // Dimensions
-        result = 31 * result + Integer.hashCode(n);
-        result = 31 * result + Integer.hashCode(m);
-
-        // Màscara de claus
-        result = 31 * result + Integer.hashCode(clausMask);
-
-        // Posicions d'agents
-        result = 31 * result + agents.hashCode();
-
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                result = 31 * result + Integer.hashCode(grid[i][j]);
-            }
-        }
-
-        // Posició de sortida
-        result = 31 * result + (sortida != null ? sortida.hashCode() : 0);
-
-        return result;
+        long h = podats <= 0 ? hash : hash ^ (podats * 0x9E3779B97F4A7C15L);
+        return (int) (h ^ (h >>> 32));
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Agents:");
-        for (int i = 0; i < agents.size(); i++) sb.append(" ").append(i+1).append(agents.get(i));
+        for (int i = 0; i < agents.length; i++) sb.append(" ").append(i+1).append(tauler.posicio(agents[i]));
         sb.append(" clausMask=").append(Integer.toBinaryString(clausMask));
         return sb.toString();
     }
 
-    /** 
+    /**
      * @return la posició de sortida del mapa
      */
     public Posicio getSortidaPosicio() {
-        return sortida;
+        return tauler.posicio(tauler.getSortida());
     }
 
     //===================================================================
@@ -352,4 +546,169 @@ public class Mapa {
         return getCell(new Posicio(x, y));  // Delega al mètode existent per validació de límits
     }
 
+    /**
+     * @return la disposició estàtica compartida d'aquest mapa
+     */
+    public Tauler getTauler() { return tauler; }
+
+    /**
+     * @return el nombre d'agents
+     */
+    public int getNumAgents() { return agents.length; }
+
+    /**
+     * @param i índex de l'agent (0 -> agent 1)
+     * @return l'índex pla de la cel·la on és l'agent (veure Tauler.index)
+     */
+    public int getCellaAgent(int i) { return agents[i]; }
+
+    /**
+     * @param i índex de l'agent (0 -> agent 1)
+     * @return true si l'agent està congelat (no genera moviments)
+     */
+    public boolean esCongelat(int i) { return ((congelats >>> i) & 1) != 0; }
+
+    /**
+     * @return el hash de Zobrist complet (64 bits) de l'estat
+     */
+    public long getHashZobrist() { return hash; }
+
+    /**
+     * @return el nombre de paraules de 64 bits de la clau empaquetada de l'estat
+     *         (1 per a tots els mapes habituals).
+     */
+    public int getParaulesClau() {
+        return tauler.getParaulesClau() + (podats == SENSE_ORDRE_PARCIAL ? 0 : 1);
+    }
+
+    /**
+     * @return la clau empaquetada de l'estat quan cap en un sol long
+     * @throws IllegalStateException si l'estat necessita més d'una paraula
+     */
+    public long getClauEstat() {
+        if (getParaulesClau() != 1) throw new IllegalStateException("L'estat no cap en un long");
+        return paraulaClau(0);
+    }
+
+    /**
+     * Escriu la clau empaquetada de l'estat (índex de cel·la de cada agent + màscara de claus)
+     * a partir de la posició offset de desti. Dos estats del mateix mapa són iguals si i només
+     * si tenen la mateixa clau. Amb la reducció d'ordre parcial activada, els moviments
+     * podats van en una paraula addicional al final.
+     * @param desti vector on escriure-la (almenys getParaulesClau() posicions lliures)
+     * @param offset primera posició a escriure
+     */
+    public void escriuClau(long[] desti, int offset) {
+        int paraules = tauler.getParaulesClau();
+        for (int w = 0; w < paraules; w++) desti[offset + w] = paraulaClau(w);
+        if (podats != SENSE_ORDRE_PARCIAL) desti[offset + paraules] = podats;
+    }
+
+    /**
+     * Inversa d'escriuClau (sense reducció d'ordre parcial): reconstrueix l'estat a partir de
+     * la clau empaquetada, per a les cerques que guarden els estats fora de memòria. L'estat
+     * és sobre el mateix tauler i amb els mateixos agents congelats que aquest.
+     * @param clau vector amb la clau (tauler.getParaulesClau() paraules a partir d'offset)
+     * @param offset primera posició de la clau
+     */
+    public Mapa deClau(long[] clau, int offset) {
+        int bitsCella = tauler.getBitsCella();
+        int usats = tauler.getBitsClaus();
+        int mask = (int) (clau[offset] & ((1L << usats) - 1));
+        int[] agents = new int[tauler.getNumAgents()];
+        int actual = 0;
+        for (int a = 0; a < agents.length; a++) {
+            if (usats + bitsCella > 64) { actual++; usats = 0; }
+            agents[a] = (int) ((clau[offset + actual] >>> usats) & ((1L << bitsCella) - 1));
+            usats += bitsCella;
+        }
+        Mapa m = new Mapa(tauler, agents, mask);
+        m.congelats = congelats;
+        return m;
+    }
+
+    /**
+     * Congela els agents que no poden contribuir mai a la meta: els que són a un component
+     * (veure Accessibilitat.agentsIrrellevants) sense sortida ni claus pendents, on cap
+     * agent de fora no pot entrar. Qualsevol solució on es moguin té una solució igual o
+     * més curta on no es mouen, i per tant es poden treure dels successors sense perdre
+     * l'optimalitat. Es crida en construir l'estat inicial; els successors l'hereten.
+     */
+    void calculaCongelats() {
+        congelats = Accessibilitat.de(tauler).agentsIrrellevants(this);
+    }
+
+    /**
+     * Activa la reducció d'ordre parcial per commutació de moviments independents.
+     *
+     * Dos moviments d'agents diferents són independents si cap dels dos habilita l'altre
+     * (entrar a la cel·la que l'altre deixa o a una porta que obre la clau que l'altre
+     * recull): en aquest cas es poden fer en qualsevol ordre i porten al mateix estat. Dels
+     * dos ordres només es genera el canònic, el de l'agent amb índex més petit primer.
+     * Qualsevol seqüència de moviments es pot reordenar a la forma canònica sense canviar
+     * la longitud, i per tant les cerques òptimes segueixen sent òptimes.
+     *
+     * Com que els successors permesos depenen del darrer moviment, el conjunt de moviments
+     * podats passa a formar part de la identitat de l'estat (equals, hashCode i clau
+     * empaquetada). Es guarda el conjunt i no el moviment perquè dues arribades que poden
+     * els mateixos successors siguin el mateix estat. Els estats que en deriven amb mou
+     * també la porten activada.
+     * @return una còpia de l'estat amb la reducció activada
+     */
+    public Mapa ambReduccioOrdreParcial() {
+        Mapa m = new Mapa(this);
+        m.podats = 0;
+        return m;
+    }
+
+    /**
+     * @return l'estat sense la reducció d'ordre parcial (el mateix objecte si no la tenia)
+     */
+    public Mapa senseReduccioOrdreParcial() {
+        if (podats == SENSE_ORDRE_PARCIAL) return this;
+        Mapa m = new Mapa(this);
+        m.podats = SENSE_ORDRE_PARCIAL;
+        return m;
+    }
+
+    /**
+     * Moviments podats a aquest estat quan s'hi arriba movent l'agent ultim des d'origen.
+     * Un agent anterior a ultim només pot moure's si depèn del darrer moviment: entra a la
+     * cel·la que ha quedat lliure o a la porta que obre la clau recollida. Els moviments
+     * que ja no serien vàlids no cal marcar-los.
+     * @param portaOberta porta que obre la clau recollida, o -1 si no se n'ha recollit cap
+     */
+    private long podatsDespres(int ultim, int origen, int portaOberta) {
+        long mask = 0;
+        for (int a = 0; a < Math.min(ultim, MAX_AGENTS_PODATS); a++) {
+            int actual = agents[a];
+            for (int e = tauler.iniciVeins(actual), fi = tauler.fiVeins(actual); e < fi; e++) {
+                int dest = tauler.getVei(e);
+                int cell = getCellIndex(dest);
+                if (dest == origen || cell == portaOberta) continue;
+                if (Tauler.esPorta(cell) && (clausMask & Tauler.bitClau(cell)) == 0) continue;
+                if (ocupada(dest)) continue;
+                mask |= 1L << (a * 4 + tauler.getDireccioVei(e));
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Calcula la paraula w de la clau empaquetada.
+     */
+    private long paraulaClau(int w) {
+        int bitsCella = tauler.getBitsCella();
+        long paraula = 0;
+        int actual = 0;
+        int usats = tauler.getBitsClaus();
+        if (w == 0) paraula = clausMask;
+        for (int a : agents) {
+            if (usats + bitsCella > 64) { actual++; usats = 0; }
+            if (actual == w) paraula |= ((long) a) << usats;
+            else if (actual > w) break;
+            usats += bitsCella;
+        }
+        return paraula;
+    }
 }
@@ -0,0 +1,197 @@
+package edu.epsevg.prop.ac1.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format binari compilat dels mapes, pensat per carregar mapes grans (magatzems generats
+ * de diversos MB) sense haver d'interpretar el text caràcter a caràcter.
+ *
+ * El fitxer (little-endian) conté:
+ * <ul>
+ *     <li>Capçalera: MAGIC, VERSIO, n, m, agents, sortida, bitsClaus, hash del tauler,
+ *         nombre de claus, de portes i d'entrades de la taula de veïns.</li>
+ *     <li>Taules d'enters: cel·la de cada agent, cel·les de clau, cel·les de porta i la
+ *         taula de veïns CSR (inicis i veïns).</li>
+ *     <li>Taules de bytes: les n*m cel·les i la direcció de cada veí.</li>
+ * </ul>
+ * Els enters van abans dels bytes perquè quedin alineats. La càrrega projecta el fitxer
+ * en memòria (FileChannel.map) i en copia cada taula d'un sol cop.
+ *
+ * Ús com a conversor: MapaBinari entrada.map sortida.mapb
+ */
+public final class MapaBinari {
+    /**
+     * "AC1M" en little-endian
+     */
+    public static final int MAGIC = 0x4D314341;
+    public static final int VERSIO = 1;
+
+    private static final int ENTERS_CAPCALERA = 11;
+
+    private MapaBinari() { }
+
+    /**
+     * Converteix un mapa en format text (.map) al format binari.
+     * @param entrada fitxer .map
+     * @param sortida fitxer binari a generar (se sobreescriu)
+     */
+    public static void compila(Path entrada, Path sortida) throws IOException {
+        escriu(new Mapa(entrada), sortida);
+    }
+
+    /**
+     * Desa l'estat (tauler i posició dels agents) en format binari. La màscara de claus
+     * no es desa: el fitxer descriu sempre un estat inicial.
+     */
+    public static void escriu(Mapa mapa, Path sortida) throws IOException {
+        Tauler t = mapa.getTauler();
+        int cel = t.getNumCelles();
+        int numVeins = t.veins().length;
+        long mida = mida(cel, mapa.getNumAgents(), t.getNumClaus(), t.getNumPortes(), numVeins);
+        if (mida > Integer.MAX_VALUE) throw new IOException("Mapa massa gran pel format binari");
+
+        ByteBuffer buf = ByteBuffer.allocate((int) mida).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSIO)
+           .putInt(t.getN()).putInt(t.getM()).putInt(mapa.getNumAgents()).putInt(t.getSortida())
+           .putInt(t.getBitsClaus()).putInt(t.hashCode())
+           .putInt(t.getNumClaus()).putInt(t.getNumPortes()).putInt(numVeins);
+        for (int i = 0; i < mapa.getNumAgents(); i++) buf.putInt(mapa.getCellaAgent(i));
+        escriuInts(buf, t.claus());
+        escriuInts(buf, t.portes());
+        escriuInts(buf, t.veinsInici());
+        escriuInts(buf, t.veins());
+        buf.put(t.cel());
+        buf.put(t.veinsDir());
+        buf.flip();
+
+        try (FileChannel ch = FileChannel.open(sortida, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+    }
+
+    /**
+     * @return la mida en bytes d'un fitxer amb aquests comptadors
+     */
+    private static long mida(long cel, long numAgents, long numClaus, long numPortes, long numVeins) {
+        return 4L * (ENTERS_CAPCALERA + numAgents + numClaus + numPortes + (cel + 1) + numVeins) + cel + numVeins;
+    }
+
+    private static void escriuInts(ByteBuffer buf, int[] v) {
+        buf.asIntBuffer().put(v);
+        buf.position(buf.position() + 4 * v.length);
+    }
+
+    /**
+     * Carrega un mapa en format binari projectant-lo en memòria. Abans de llegir cap taula
+     * es comprova que els comptadors de la capçalera quadrin amb la mida del fitxer, i
+     * després que les taules d'enters només continguin cel·les del mapa i que la taula de
+     * veïns sigui un CSR vàlid (inicis creixents, de 0 a numVeins).
+     * @return l'estat inicial descrit pel fitxer
+     * @throws IOException si el fitxer no és un mapa binari, està truncat o és incoherent
+     */
+    public static Mapa carrega(Path fitxer) throws IOException {
+        MappedByteBuffer buf;
+        long midaFitxer;
+        try (FileChannel ch = FileChannel.open(fitxer, StandardOpenOption.READ)) {
+            midaFitxer = ch.size();
+            if (midaFitxer < 4L * ENTERS_CAPCALERA) {
+                throw new IOException("Mapa binari truncat (" + midaFitxer + " bytes, sense capçalera): " + fitxer);
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, midaFitxer);
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buf.getInt() != MAGIC) throw new IOException("No és un mapa binari: " + fitxer);
+        int versio = buf.getInt();
+        if (versio != VERSIO) throw new IOException("Versió de mapa binari no suportada: " + versio);
+
+        int n = buf.getInt();
+        int m = buf.getInt();
+        int numAgents = buf.getInt();
+        int sortida = buf.getInt();
+        int bitsClaus = buf.getInt();
+        int hash = buf.getInt();
+        int numClaus = buf.getInt();
+        int numPortes = buf.getInt();
+        int numVeins = buf.getInt();
+
+        if (n <= 0 || m <= 0 || numAgents < 0 || numClaus < 0 || numPortes < 0 || numVeins < 0) {
+            throw new IOException("Capçalera de mapa binari incoherent: " + fitxer);
+        }
+        long numCelles = (long) n * m;
+        long esperada = mida(numCelles, numAgents, numClaus, numPortes, numVeins);
+        if (numCelles >= Integer.MAX_VALUE || esperada != midaFitxer) {
+            throw new IOException("Mida de mapa binari incorrecta: " + midaFitxer + " bytes, la capçalera en descriu "
+                    + esperada + ": " + fitxer);
+        }
+        if (sortida < 0 || sortida >= numCelles) throw new IOException("Sortida fora del mapa binari: " + fitxer);
+
+        int[] agents = llegeixInts(buf, numAgents);
+        int[] claus = llegeixInts(buf, numClaus);
+        int[] portes = llegeixInts(buf, numPortes);
+        int[] veinsInici = llegeixInts(buf, n * m + 1);
+        int[] veins = llegeixInts(buf, numVeins);
+        byte[] cel = new byte[n * m];
+        buf.get(cel);
+        byte[] veinsDir = new byte[numVeins];
+        buf.get(veinsDir);
+
+        comprovaCelles(agents, n * m, "d'agents", fitxer);
+        comprovaCelles(claus, n * m, "de claus", fitxer);
+        comprovaCelles(portes, n * m, "de portes", fitxer);
+        comprovaCelles(veins, n * m, "de veïns", fitxer);
+        if (veinsInici[0] != 0 || veinsInici[n * m] != numVeins) {
+            throw new IOException("Taula de veïns del mapa binari incoherent: " + fitxer);
+        }
+        for (int i = 0; i < n * m; i++) {
+            if (veinsInici[i] > veinsInici[i + 1]) {
+                throw new IOException("Taula de veïns del mapa binari incoherent (cel·la " + i + "): " + fitxer);
+            }
+        }
+        for (byte d : veinsDir) {
+            if (d < 0 || d >= Direccio.values().length) throw new IOException("Direcció de veí incorrecta al mapa binari: " + fitxer);
+        }
+
+        Tauler t = new Tauler(n, m, cel, numAgents, sortida, bitsClaus, hash,
+                              claus, portes, veinsInici, veins, veinsDir);
+        Mapa mapa = new Mapa(t, agents, 0);
+        mapa.calculaCongelats();
+        return mapa;
+    }
+
+    /**
+     * @throws IOException si algun valor de v no és una cel·la del mapa
+     */
+    private static void comprovaCelles(int[] v, int numCelles, String taula, Path fitxer) throws IOException {
+        for (int c : v) {
+            if (c < 0 || c >= numCelles) {
+                throw new IOException("Cel·la " + c + " fora del mapa a la taula " + taula + " del mapa binari: " + fitxer);
+            }
+        }
+    }
+
+    private static int[] llegeixInts(ByteBuffer buf, int quants) {
+        int[] v = new int[quants];
+        buf.asIntBuffer().get(v);
+        buf.position(buf.position() + 4 * quants);
+        return v;
+    }
+
+    /**
+     * Conversor de línia d'ordres: MapaBinari entrada.map sortida.mapb
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Ús: MapaBinari entrada.map sortida.mapb");
+            System.exit(1);
+        }
+        compila(Path.of(args[0]), Path.of(args[1]));
+    }
+}
@@ -0,0 +1,125 @@
+package edu.epsevg.prop.ac1.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generador de successors per Jump Point Search en graella de 4 veïns (JPS4).
+ *
+ * Un salt mou un sol agent en línia recta tantes caselles com calgui fins al primer punt
+ * de salt, amb els altres agents quiets (fan de paret). L'ordre canònic dels camins és
+ * "vertical primer": un salt vertical pot girar a horitzontal a qualsevol casella (a cada
+ * pas s'exploren els dos salts horitzontals), però un salt horitzontal només s'atura per
+ * girar quan hi ha un veí forçat (casella de dalt o de baix lliure que des de la casella
+ * anterior no ho era). Un salt que arriba a una paret sense trobar cap punt es descarta.
+ *
+ * A més dels veïns forçats, són punts d'aturada obligats: la sortida, les claus que encara
+ * no tenim, les portes i les caselles veïnes d'un altre agent (perquè l'altre agent pugui
+ * moure's abans de seguir). El cost d'un salt és la seva longitud.
+ */
+public final class Salts {
+    private static final int AMUNT = 0, AVALL = 1, ESQUERRA = 2, DRETA = 3;
+
+    private Salts() { }
+
+    /**
+     * @return el nombre màxim de salts d'un estat (4 per agent)
+     */
+    public static int getMaxSalts(Mapa estat) { return estat.getMaxAccions(); }
+
+    /**
+     * Escriu els salts possibles des de l'estat: a accions[k] l'últim pas del salt (amb
+     * recullClau si acaba sobre una clau nova) i a longituds[k] el nombre de passos.
+     * @return el nombre de salts escrits a partir d'offset
+     */
+    public static int genera(Mapa estat, Moviment[] accions, int[] longituds, int offset) {
+        Tauler t = estat.getTauler();
+        int k = offset;
+        for (int a = 0; a < estat.getNumAgents(); a++) {
+            if (estat.esCongelat(a)) continue;
+            int origen = estat.getCellaAgent(a);
+            for (int dir = 0; dir < 4; dir++) {
+                int desti = dir <= AVALL ? saltVertical(estat, a, origen, dir) : saltHoritzontal(estat, a, origen, dir);
+                if (desti < 0) continue;
+                int c = t.getCella(desti);
+                boolean recull = Tauler.esClau(c) && (estat.getClausMask() & Tauler.bitClau(c)) == 0;
+                accions[k] = t.getMoviment(a, dir, recull);
+                longituds[k] = Math.abs(t.fila(desti) - t.fila(origen)) + Math.abs(t.columna(desti) - t.columna(origen));
+                k++;
+            }
+        }
+        return k - offset;
+    }
+
+    /**
+     * @return l'estat després del salt (l'últim pas és accio, de longitud passos)
+     */
+    public static Mapa aplica(Mapa estat, Moviment accio, int longitud) {
+        int a = accio.getAgentId() - 1;
+        int c = estat.getCellaAgent(a);
+        for (int i = 0; i < longitud; i++) c = estat.getTauler().vei(c, accio.getDireccio());
+        return estat.desplaca(a, c);
+    }
+
+    /**
+     * Desplega un salt en els seus moviments d'una casella, per al camí final.
+     */
+    public static List<Moviment> desplega(Mapa estat, Moviment accio, int longitud) {
+        List<Moviment> passos = new ArrayList<>(longitud);
+        Moviment pas = estat.getTauler().getMoviment(accio.getAgentId() - 1, accio.getDireccio().ordinal(), false);
+        for (int i = 1; i < longitud; i++) passos.add(pas);
+        passos.add(accio);
+        return passos;
+    }
+
+    private static int saltVertical(Mapa estat, int a, int c, int dir) {
+        Tauler t = estat.getTauler();
+        while (true) {
+            c = t.vei(c, dir);
+            if (!lliure(estat, a, c)) return -1;
+            if (parada(estat, a, c)) return c;
+            if (saltHoritzontal(estat, a, c, ESQUERRA) >= 0 || saltHoritzontal(estat, a, c, DRETA) >= 0) return c;
+        }
+    }
+
+    private static int saltHoritzontal(Mapa estat, int a, int c, int dir) {
+        Tauler t = estat.getTauler();
+        while (true) {
+            int anterior = c;
+            c = t.vei(c, dir);
+            if (!lliure(estat, a, c)) return -1;
+            if (parada(estat, a, c)) return c;
+            for (int v = AMUNT; v <= AVALL; v++) {
+                if (lliure(estat, a, t.vei(c, v)) && !lliure(estat, a, t.vei(anterior, v))) return c;
+            }
+        }
+    }
+
+    /**
+     * @return true si l'agent a pot trepitjar la cel·la c (no és paret, ni porta tancada, ni
+     *         ocupada per un altre agent)
+     */
+    private static boolean lliure(Mapa estat, int a, int c) {
+        if (c < 0) return false;
+        int cell = estat.getTauler().getCella(c);
+        if (Tauler.esPorta(cell) && (estat.getClausMask() & Tauler.bitClau(cell)) == 0) return false;
+        return !ocupadaPerAltre(estat, a, c);
+    }
+
+    private static boolean ocupadaPerAltre(Mapa estat, int a, int c) {
+        for (int i = 0; i < estat.getNumAgents(); i++) if (i != a && estat.getCellaAgent(i) == c) return true;
+        return false;
+    }
+
+    private static boolean parada(Mapa estat, int a, int c) {
+        Tauler t = estat.getTauler();
+        int cell = t.getCella(c);
+        if (c == t.getSortida() || Tauler.esPorta(cell)) return true;
+        if (Tauler.esClau(cell) && (estat.getClausMask() & Tauler.bitClau(cell)) == 0) return true;
+        for (int dir = 0; dir < 4; dir++) {
+            int v = t.vei(c, dir);
+            if (v >= 0 && ocupadaPerAltre(estat, a, v)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,352 @@
+package edu.epsevg.prop.ac1.model;
+
+import java.util.Arrays;
+
+/**
+ * Disposició estàtica d'un mapa: parets, portes, claus i sortida, tal com s'han llegit.
+ * És immutable i la comparteixen tots els estats (Mapa) que en deriven, de manera que
+ * cada estat només ha de desar la posició dels agents i la màscara de claus.
+ *
+ * Les cel·les es guarden en un vector pla indexat per x*m+y, amb els mateixos codis
+ * que Mapa (PARET, ESPAI, SORTIDA, i les lletres de claus i portes).
+ */
+public final class Tauler {
+    private final int n;
+    private final int m;
+    private final byte[] cel;
+    private final int sortida;
+    private final int numAgents;
+    private final int[] claus;   // cel·les amb clau, en ordre d'índex
+    private final int[] portes;  // cel·les amb porta, en ordre d'índex
+
+    // Empaquetament compacte de l'estat (veure Mapa.escriuClau)
+    private final int bitsCella;   // bits necessaris per codificar l'índex d'una cel·la
+    private final int bitsClaus;   // bits de la màscara de claus (clau més alta present + 1)
+    private final int paraules;    // nombre de longs que ocupa la clau empaquetada
+
+    // Taula de veïns en format CSR: els veïns transitables (no paret) de la cel·la i són
+    // veins[veinsInici[i] .. veinsInici[i+1]-1], en l'ordre de Direccio.values()
+    private final int[] veinsInici;
+    private final int[] veins;
+    private final byte[] veinsDir;
+
+    // Moviments preconstruïts, indexats per ((agent*4 + direcció)*2 + recull)
+    private final Moviment[] moviments;
+
+    // Valors de Zobrist: un per (agent, cel·la) i un per clau, derivats de l'índex (veure valorZobrist)
+    private static final long LLAVOR_ZOBRIST = 0x5DEECE66DL;
+
+    private final int hash;
+
+    /**
+     * @param n files
+     * @param m columnes
+     * @param cel cel·les en ordre x*m+y (no se'n fa còpia)
+     * @param numAgents nombre d'agents dels estats d'aquest tauler
+     */
+    Tauler(int n, int m, byte[] cel, int numAgents) {
+        this.n = n;
+        this.m = m;
+        this.cel = cel;
+        this.numAgents = numAgents;
+
+        int s = -1;
+        int maxClau = 0;
+        int numClaus = 0, numPortes = 0;
+        for (int i = 0; i < cel.length; i++) {
+            if (cel[i] == Mapa.SORTIDA) s = i;
+            else if (esClau(cel[i])) { maxClau = Math.max(maxClau, cel[i] - 'a' + 1); numClaus++; }
+            else if (esPorta(cel[i])) numPortes++;
+        }
+        if (s < 0) throw new RuntimeException("Sortida no definida.");
+        this.sortida = s;
+        this.claus = new int[numClaus];
+        this.portes = new int[numPortes];
+        numClaus = numPortes = 0;
+        for (int i = 0; i < cel.length; i++) {
+            if (esClau(cel[i])) claus[numClaus++] = i;
+            else if (esPorta(cel[i])) portes[numPortes++] = i;
+        }
+        this.bitsClaus = maxClau;
+        this.bitsCella = Math.max(1, 32 - Integer.numberOfLeadingZeros(n * m - 1));
+        this.paraules = calculaParaules(bitsClaus, bitsCella, numAgents);
+        this.hash = 31 * (31 * n + m) + Arrays.hashCode(cel);
+
+        Direccio[] dirs = Direccio.values();
+        this.veinsInici = new int[cel.length + 1];
+        int[] vs = new int[cel.length * 4];
+        byte[] ds = new byte[cel.length * 4];
+        int k = 0;
+        for (int i = 0; i < cel.length; i++) {
+            veinsInici[i] = k;
+            if (cel[i] == Mapa.PARET) continue;
+            int x = i / m, y = i % m;
+            for (Direccio d : dirs) {
+                int vx = x + d.dx, vy = y + d.dy;
+                if (vx < 0 || vx >= n || vy < 0 || vy >= m) continue;
+                int v = vx * m + vy;
+                if (cel[v] == Mapa.PARET) continue;
+                vs[k] = v;
+                ds[k] = (byte) d.ordinal();
+                k++;
+            }
+        }
+        veinsInici[cel.length] = k;
+        this.veins = Arrays.copyOf(vs, k);
+        this.veinsDir = Arrays.copyOf(ds, k);
+
+        this.moviments = preconstrueixMoviments(numAgents);
+    }
+
+    /**
+     * Constructor amb totes les metadades ja calculades (veure MapaBinari): no recorre
+     * les cel·les. Els vectors no es copien.
+     */
+    Tauler(int n, int m, byte[] cel, int numAgents, int sortida, int bitsClaus, int hash,
+           int[] claus, int[] portes, int[] veinsInici, int[] veins, byte[] veinsDir) {
+        this.n = n;
+        this.m = m;
+        this.cel = cel;
+        this.numAgents = numAgents;
+        this.sortida = sortida;
+        this.claus = claus;
+        this.portes = portes;
+        this.bitsClaus = bitsClaus;
+        this.bitsCella = Math.max(1, 32 - Integer.numberOfLeadingZeros(n * m - 1));
+        this.paraules = calculaParaules(bitsClaus, bitsCella, numAgents);
+        this.hash = hash;
+        this.veinsInici = veinsInici;
+        this.veins = veins;
+        this.veinsDir = veinsDir;
+        this.moviments = preconstrueixMoviments(numAgents);
+    }
+
+    /**
+     * Valor de Zobrist de l'índex i: splitmix64 de la llavor fixa més i. No cal cap taula
+     * de numAgents*n*m valors (que s'hauria d'omplir en construir el tauler, també en
+     * carregar un MapaBinari), i el hash d'un estat és reproduïble entre execucions.
+     */
+    private static long valorZobrist(long i) {
+        long z = LLAVOR_ZOBRIST + i * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static Moviment[] preconstrueixMoviments(int numAgents) {
+        Direccio[] dirs = Direccio.values();
+        Moviment[] res = new Moviment[numAgents * dirs.length * 2];
+        for (int a = 0; a < numAgents; a++)
+            for (Direccio d : dirs) {
+                res[(a * 4 + d.ordinal()) * 2] = new Moviment(a + 1, d, false);
+                res[(a * 4 + d.ordinal()) * 2 + 1] = new Moviment(a + 1, d, true);
+            }
+        return res;
+    }
+
+    /**
+     * Calcula quantes paraules de 64 bits calen per empaquetar l'estat: la màscara de claus
+     * va als bits baixos de la primera paraula i cada agent ocupa bitsCella bits, sense
+     * partir mai un agent entre dues paraules.
+     */
+    private static int calculaParaules(int bitsClaus, int bitsCella, int numAgents) {
+        int paraules = 1;
+        int usats = bitsClaus;
+        for (int i = 0; i < numAgents; i++) {
+            if (usats + bitsCella > 64) { paraules++; usats = 0; }
+            usats += bitsCella;
+        }
+        return paraules;
+    }
+
+    /**
+     * @return true si el codi de cel·la correspon a una clau ('a'..'z')
+     */
+    public static boolean esClau(int cella) { return cella >= 'a' && cella <= 'z'; }
+
+    /**
+     * @return true si el codi de cel·la correspon a una porta ('A'..'Z')
+     */
+    public static boolean esPorta(int cella) { return cella >= 'A' && cella <= 'Z'; }
+
+    /**
+     * @return el bit de la màscara de claus que obre o recull la lletra donada
+     */
+    public static int bitClau(int lletra) { return 1 << (Character.toLowerCase(lletra) - 'a'); }
+
+    /**
+     * @return el nombre de files
+     */
+    public int getN() { return n; }
+
+    /**
+     * @return el nombre de columnes
+     */
+    public int getM() { return m; }
+
+    /**
+     * @return el nombre total de cel·les (n*m)
+     */
+    public int getNumCelles() { return cel.length; }
+
+    /**
+     * @return el nombre d'agents dels estats d'aquest tauler
+     */
+    public int getNumAgents() { return numAgents; }
+
+    /**
+     * @return l'índex pla de la cel·la (x,y), sense comprovar límits
+     */
+    public int index(int x, int y) { return x * m + y; }
+
+    /**
+     * @return la fila de l'índex pla
+     */
+    public int fila(int idx) { return idx / m; }
+
+    /**
+     * @return la columna de l'índex pla
+     */
+    public int columna(int idx) { return idx % m; }
+
+    /**
+     * @return la posició corresponent a l'índex pla
+     */
+    public Posicio posicio(int idx) { return new Posicio(idx / m, idx % m); }
+
+    /**
+     * Contingut original de la cel·la: les claus hi apareixen sempre, independentment de
+     * si un estat concret ja les ha recollides (veure Mapa.getCell).
+     * @return el codi de la cel·la
+     */
+    public int getCella(int idx) { return cel[idx]; }
+
+    /**
+     * @return l'índex pla de la sortida
+     */
+    public int getSortida() { return sortida; }
+
+    /**
+     * @return els bits que ocupa cada índex de cel·la a la clau empaquetada
+     */
+    public int getBitsCella() { return bitsCella; }
+
+    /**
+     * @return els bits que ocupa la màscara de claus a la clau empaquetada
+     */
+    public int getBitsClaus() { return bitsClaus; }
+
+    /**
+     * @return el nombre de paraules de 64 bits de la clau empaquetada d'un estat
+     */
+    public int getParaulesClau() { return paraules; }
+
+    /**
+     * @return el nombre de cel·les amb clau
+     */
+    public int getNumClaus() { return claus.length; }
+
+    /**
+     * @return l'índex de la i-èsima cel·la amb clau (en ordre d'índex)
+     */
+    public int getCellaClau(int i) { return claus[i]; }
+
+    /**
+     * @return el nombre de cel·les amb porta
+     */
+    public int getNumPortes() { return portes.length; }
+
+    /**
+     * @return l'índex de la i-èsima cel·la amb porta (en ordre d'índex)
+     */
+    public int getCellaPorta(int i) { return portes[i]; }
+
+    /**
+     * @return la primera posició de la cel·la idx a la taula de veïns (veure getVei)
+     */
+    public int iniciVeins(int idx) { return veinsInici[idx]; }
+
+    /**
+     * @return la posició següent a l'última de la cel·la idx a la taula de veïns
+     */
+    public int fiVeins(int idx) { return veinsInici[idx + 1]; }
+
+    /**
+     * @param k posició a la taula de veïns, entre iniciVeins(idx) i fiVeins(idx)
+     * @return l'índex de la cel·la veïna (mai és una paret, però pot ser una porta)
+     */
+    public int getVei(int k) { return veins[k]; }
+
+    /**
+     * @param k posició a la taula de veïns
+     * @return l'ordinal de la Direccio que porta al veí k
+     */
+    public int getDireccioVei(int k) { return veinsDir[k]; }
+
+    /**
+     * @return el veí de la cel·la idx en la direcció donada, o -1 si és una paret o fora del mapa
+     */
+    public int vei(int idx, Direccio d) {
+        return vei(idx, d.ordinal());
+    }
+
+    /**
+     * @param direccio ordinal de la Direccio
+     * @return el veí de la cel·la idx en la direcció donada, o -1 si és una paret o fora del mapa
+     */
+    public int vei(int idx, int direccio) {
+        for (int k = veinsInici[idx]; k < veinsInici[idx + 1]; k++)
+            if (veinsDir[k] == direccio) return veins[k];
+        return -1;
+    }
+
+    /**
+     * Moviment preconstruït (no se'n creen de nous durant la cerca).
+     * @param agent índex de l'agent (0 -> agent 1)
+     * @param direccio ordinal de la Direccio
+     * @param recull si el moviment recull una clau
+     */
+    public Moviment getMoviment(int agent, int direccio, boolean recull) {
+        return moviments[(agent * 4 + direccio) * 2 + (recull ? 1 : 0)];
+    }
+
+    /**
+     * @return el valor de Zobrist de l'agent (0 -> agent 1) a la cel·la idx
+     */
+    long zobristAgent(int agent, int idx) { return valorZobrist((long) agent * cel.length + idx); }
+
+    /**
+     * @return el valor de Zobrist de tenir la clau de la lletra donada
+     */
+    long zobristClau(int lletra) { return valorZobrist((long) numAgents * cel.length + Character.toLowerCase(lletra) - 'a'); }
+
+    /**
+     * Hash de Zobrist complet d'un estat (només cal en crear l'estat inicial; després
+     * Mapa.mou el manté amb XOR).
+     */
+    long zobrist(int[] agents, int clausMask) {
+        long h = 0;
+        for (int a = 0; a < agents.length; a++) h ^= zobristAgent(a, agents[a]);
+        for (int k = 0; k < 32; k++) if ((clausMask & (1 << k)) != 0) h ^= zobristClau('a' + k);
+        return h;
+    }
+
+    // Accés directe als vectors interns, només per serialitzar (MapaBinari)
+    byte[] cel() { return cel; }
+    int[] claus() { return claus; }
+    int[] portes() { return portes; }
+    int[] veinsInici() { return veinsInici; }
+    int[] veins() { return veins; }
+    byte[] veinsDir() { return veinsDir; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Tauler)) return false;
+        Tauler t = (Tauler) o;
+        return hash == t.hash && n == t.n && m == t.m && numAgents == t.numAgents && Arrays.equals(cel, t.cel);
+    }
+
+    @Override
+    public int hashCode() { return hash; }
+}
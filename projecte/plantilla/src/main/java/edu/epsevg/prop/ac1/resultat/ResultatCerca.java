@@ -21,6 +21,7 @@ public class ResultatCerca {
     private int nodesExplorats;
     private int nodesTallats;
     private int memoriaPic;
+    private double fitaSubOptimalitat = Double.NaN;
         
     private long inici;
     private long fi;
@@ -42,6 +43,12 @@ public class ResultatCerca {
      * @param cami : la llista de passos per aconseguir arribar a la sortida
      */
     public void setCami(List<Moviment> cami) { this.cami = cami; }
+
+    /**
+     * Per les cerques anytime o aproximades: informa de la fita de subòptimalitat de la
+     * solució (la longitud del camí és com a molt fita vegades l'òptima; 1 vol dir òptima).
+     */
+    public void setFitaSubOptimalitat(double fita) { this.fitaSubOptimalitat = fita; }
     
     /**
      * Incrementa en 1 els nodes explorats
@@ -56,6 +63,20 @@ public class ResultatCerca {
     public void incNodesTallats(){
         this.nodesTallats++;
     }
+
+    /**
+     * Suma de cop els nodes explorats d'un bloc (p.ex. una capa sencera d'una cerca paral·lela)
+     */
+    public void incNodesExplorats(int quants){
+        nodesExplorats += quants;
+    }
+
+    /**
+     * Suma de cop els nodes tallats d'un bloc
+     */
+    public void incNodesTallats(int quants){
+        this.nodesTallats += quants;
+    }
     
     /**
      * Permet informar de l'us de memòria actual. Si és el màxim històric, ResultatCerca el registra, sinó l'ignora.
@@ -88,6 +109,7 @@ public class ResultatCerca {
     public int getNodesExplorats() { return nodesExplorats; }
     public int getNodesTallats() { return nodesTallats; }
     public int getMemoriaPic() { return memoriaPic; }
+    public double getFitaSubOptimalitat() { return fitaSubOptimalitat; }
     public long getTempsMs() { return fi-inici; }
 
     @Override
@@ -96,6 +118,7 @@ public class ResultatCerca {
                ", explorats=" + nodesExplorats +
                ", tallats=" + nodesTallats +
                ", memòria=" + memoriaPic +
+               (Double.isNaN(fitaSubOptimalitat) ? "" : ", fita=" + fitaSubOptimalitat) +
                ", temps=" + getTempsMs() + "ms";
     }
 }
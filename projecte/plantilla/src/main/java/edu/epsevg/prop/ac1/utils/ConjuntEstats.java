@@ -0,0 +1,54 @@
+package edu.epsevg.prop.ac1.utils;
+
+import edu.epsevg.prop.ac1.model.Mapa;
+
+/**
+ * Conjunt d'estats sobre claus primitives (veure EstatsOberts). Substitueix els
+ * HashSet&lt;Mapa&gt; del control de cicles: no guarda cap Mapa ni cap objecte per entrada.
+ */
+public class ConjuntEstats extends EstatsOberts {
+
+    /**
+     * @param paraules paraules de la clau dels estats que s'hi guardaran (Mapa.getParaulesClau())
+     */
+    public ConjuntEstats(int paraules) {
+        super(paraules, false);
+    }
+
+    /**
+     * @param paraules paraules de la clau dels estats que s'hi guardaran
+     * @param capacitatInicial nombre de posicions inicials (s'arrodoneix a potència de 2)
+     */
+    public ConjuntEstats(int paraules, int capacitatInicial) {
+        super(paraules, capacitatInicial, false);
+    }
+
+    /**
+     * Afegeix l'estat al conjunt
+     * @return true si no hi era
+     */
+    public boolean afegeix(Mapa estat) {
+        int pos = localitza(estat);
+        if (pos >= 0) return false;
+        insereix(estat, -pos - 1);
+        return true;
+    }
+
+    /**
+     * @return true si l'estat és al conjunt
+     */
+    public boolean conte(Mapa estat) {
+        return localitza(estat) >= 0;
+    }
+
+    /**
+     * Treu l'estat del conjunt
+     * @return true si hi era
+     */
+    public boolean elimina(Mapa estat) {
+        int pos = localitza(estat);
+        if (pos < 0) return false;
+        esborra(pos);
+        return true;
+    }
+}
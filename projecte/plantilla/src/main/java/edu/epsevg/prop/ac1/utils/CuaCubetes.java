@@ -0,0 +1,153 @@
+package edu.epsevg.prop.ac1.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cua de prioritat per claus enteres petites (la f d'A*): un vector de cubetes indexat per
+ * f i, dins de cada cubeta, una pila per cada g. Es treu sempre un element de f mínima i,
+ * entre aquests, de g màxima (el més proper a la meta segons la heurística).
+ *
+ * Afegir és O(1); treure és O(1) amortitzat, ja que els punters a la f mínima i a la g
+ * màxima només es mouen cap a les cubetes buides que ja s'han buidat abans (la f mínima
+ * només pot baixar si la heurística és inconsistent).
+ *
+ * El vector només cobreix la finestra [base, base + maxCubetes), on base és la primera f
+ * afegida a la cua buida. Les f de fora (una h molt gran o inadmissible, o més petita que
+ * la base) van a un TreeMap de cubetes, i quan la finestra es buida es torna a situar a la
+ * f més petita del TreeMap. Cada f és sempre a un sol dels dos llocs. Així la memòria no
+ * depèn del valor de f, sinó del rang de f que hi ha alhora a la cua.
+ * @param <T> tipus dels elements
+ */
+public class CuaCubetes<T> {
+    public static final int CUBETES_PER_DEFECTE = 1 << 12;
+
+    private final int maxCubetes;
+    private final List<Cubeta<T>> cubetes = new ArrayList<>();  // f = base + índex
+    private final TreeMap<Integer, Cubeta<T>> desbordament = new TreeMap<>();
+    private int base;
+    private int minF;            // f mínima de la finestra (si no és buida)
+    private int midaFinestra;
+    private int mida;
+
+    private static final class Cubeta<T> {
+        final List<ArrayDeque<T>> perG = new ArrayList<>();
+        int maxG = -1;
+        int mida;
+
+        void afegeix(T element, int g) {
+            while (perG.size() <= g) perG.add(null);
+            ArrayDeque<T> pila = perG.get(g);
+            if (pila == null) {
+                pila = new ArrayDeque<>();
+                perG.set(g, pila);
+            }
+            pila.push(element);
+            mida++;
+            if (g > maxG) maxG = g;
+        }
+
+        T treu() {
+            ArrayDeque<T> pila = perG.get(maxG);
+            while (pila == null || pila.isEmpty()) pila = perG.get(--maxG);
+            if (--mida == 0) maxG = -1;
+            return pila.pop();
+        }
+    }
+
+    public CuaCubetes() {
+        this(CUBETES_PER_DEFECTE);
+    }
+
+    /**
+     * @param maxCubetes amplada de la finestra de f amb accés directe
+     */
+    public CuaCubetes(int maxCubetes) {
+        this.maxCubetes = maxCubetes;
+    }
+
+    /**
+     * Afegeix un element amb prioritat (f, g)
+     */
+    public void afegeix(T element, int f, int g) {
+        if (mida == 0) {
+            cubetes.clear();
+            base = minF = f;
+        }
+        mida++;
+        if (f < base || f - base >= maxCubetes) {
+            desbordament.computeIfAbsent(f, k -> new Cubeta<>()).afegeix(element, g);
+            return;
+        }
+        int i = f - base;
+        while (cubetes.size() <= i) cubetes.add(null);
+        Cubeta<T> c = cubetes.get(i);
+        if (c == null) {
+            c = new Cubeta<>();
+            cubetes.set(i, c);
+        }
+        c.afegeix(element, g);
+        if (midaFinestra++ == 0 || f < minF) minF = f;
+    }
+
+    /**
+     * Treu l'element de f mínima i, a igualtat de f, de g màxima
+     * @return l'element, o null si la cua és buida
+     */
+    public T treu() {
+        if (mida == 0) return null;
+        int f = getMinF();
+        mida--;
+        if (midaFinestra > 0 && f == minF) {
+            midaFinestra--;
+            return cubetes.get(f - base).treu();
+        }
+        Map.Entry<Integer, Cubeta<T>> e = desbordament.firstEntry();
+        T element = e.getValue().treu();
+        if (e.getValue().mida == 0) desbordament.pollFirstEntry();
+        return element;
+    }
+
+    /**
+     * @return la f més petita dels elements de la cua (Integer.MAX_VALUE si és buida)
+     */
+    public int getMinF() {
+        if (mida == 0) return Integer.MAX_VALUE;
+        if (midaFinestra == 0) rebaseja();
+        while (cubetes.get(minF - base) == null || cubetes.get(minF - base).mida == 0) minF++;
+        return desbordament.isEmpty() ? minF : Math.min(minF, desbordament.firstKey());
+    }
+
+    /**
+     * Situa la finestra (buida) a la f més petita del desbordament i hi passa les cubetes
+     * que hi caben
+     */
+    private void rebaseja() {
+        cubetes.clear();
+        base = minF = desbordament.firstKey();
+        while (!desbordament.isEmpty() && desbordament.firstKey() - base < maxCubetes) {
+            Map.Entry<Integer, Cubeta<T>> e = desbordament.pollFirstEntry();
+            int i = e.getKey() - base;
+            while (cubetes.size() <= i) cubetes.add(null);
+            cubetes.set(i, e.getValue());
+            midaFinestra += e.getValue().mida;
+        }
+    }
+
+    public boolean esBuida() { return mida == 0; }
+
+    public int mida() { return mida; }
+
+    /**
+     * Buida la cua i allibera les cubetes
+     */
+    public void buida() {
+        cubetes.clear();
+        desbordament.clear();
+        midaFinestra = 0;
+        mida = 0;
+    }
+}
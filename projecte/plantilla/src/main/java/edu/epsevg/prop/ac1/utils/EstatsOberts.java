@@ -0,0 +1,151 @@
+package edu.epsevg.prop.ac1.utils;
+
+import edu.epsevg.prop.ac1.model.Mapa;
+
+/**
+ * Base de les taules d'estats amb adreçament obert (sondeig lineal).
+ *
+ * Cada posició guarda la clau empaquetada de l'estat (Mapa.escriuClau, normalment un sol
+ * long) i el seu hash; no es guarda cap referència al Mapa, de manera que els estats
+ * visitats es poden alliberar. El hash 0 marca una posició buida. Com que els hashos es
+ * desen, el redimensionament no ha de tornar a calcular res sobre els estats.
+ *
+ * Política de creixement: capacitat potència de 2, es duplica quan s'arriba al 70%
+ * d'ocupació. Els esborrats fan desplaçament enrere, sense làpides, per mantenir les
+ * cadenes de sondeig curtes encara que es facin milions d'altes i baixes (DFS/IDS).
+ */
+abstract class EstatsOberts {
+    private static final int CAPACITAT_INICIAL = 1 << 12;
+    private static final float CARREGA_MAXIMA = 0.7f;
+
+    protected final int paraules;
+    protected long[] claus;
+    protected int[] hashos;
+    protected int[] valors; // null si la taula no té valors associats
+    protected int mida;
+    private int mascara;
+    private int desplacament; // 32 - log2(capacitat)
+    private int llindar;
+    private final long[] tmp;
+
+    EstatsOberts(int paraules, int capacitatInicial, boolean ambValors) {
+        this.paraules = paraules;
+        this.tmp = new long[paraules];
+        int cap = Integer.highestOneBit(Math.max(16, capacitatInicial) - 1) << 1;
+        reserva(cap, ambValors);
+    }
+
+    EstatsOberts(int paraules, boolean ambValors) {
+        this(paraules, CAPACITAT_INICIAL, ambValors);
+    }
+
+    private void reserva(int cap, boolean ambValors) {
+        claus = new long[cap * paraules];
+        hashos = new int[cap];
+        valors = ambValors ? new int[cap] : null;
+        mascara = cap - 1;
+        desplacament = Integer.numberOfLeadingZeros(cap) + 1;
+        llindar = (int) (cap * CARREGA_MAXIMA);
+    }
+
+    /**
+     * Hash normalitzat de l'estat: mai és 0 (valor reservat per a les posicions buides).
+     */
+    private static int hash(Mapa estat) {
+        int h = estat.hashCode();
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Posició ideal: bits alts del hash multiplicat per la constant de Fibonacci.
+     */
+    private int posicioInicial(int h) {
+        return (h * 0x9E3779B9) >>> desplacament;
+    }
+
+    private boolean mateixaClau(int pos) {
+        int base = pos * paraules;
+        for (int w = 0; w < paraules; w++) if (claus[base + w] != tmp[w]) return false;
+        return true;
+    }
+
+    /**
+     * Cerca l'estat a la taula.
+     * @return la posició on és, o -(posició buida on aniria)-1 si no hi és
+     */
+    protected int localitza(Mapa estat) {
+        estat.escriuClau(tmp, 0);
+        int h = hash(estat);
+        int pos = posicioInicial(h);
+        while (hashos[pos] != 0) {
+            if (hashos[pos] == h && mateixaClau(pos)) return pos;
+            pos = (pos + 1) & mascara;
+        }
+        return -pos - 1;
+    }
+
+    /**
+     * Insereix l'estat a la posició buida retornada per localitza.
+     * @return la posició definitiva (pot canviar si la taula ha crescut)
+     */
+    protected int insereix(Mapa estat, int buida) {
+        if (mida >= llindar) {
+            creix();
+            buida = -localitza(estat) - 1;
+        }
+        hashos[buida] = hash(estat);
+        System.arraycopy(tmp, 0, claus, buida * paraules, paraules);
+        mida++;
+        return buida;
+    }
+
+    /**
+     * Esborra la posició ocupada pos, desplaçant enrere els elements de la mateixa cadena.
+     */
+    protected void esborra(int pos) {
+        int buit = pos;
+        int seg = (pos + 1) & mascara;
+        while (hashos[seg] != 0) {
+            int ideal = posicioInicial(hashos[seg]);
+            // es pot moure si la seva posició ideal no és entre el forat i ell (cíclicament)
+            if (((seg - ideal) & mascara) >= ((seg - buit) & mascara)) {
+                hashos[buit] = hashos[seg];
+                System.arraycopy(claus, seg * paraules, claus, buit * paraules, paraules);
+                if (valors != null) valors[buit] = valors[seg];
+                buit = seg;
+            }
+            seg = (seg + 1) & mascara;
+        }
+        hashos[buit] = 0;
+        mida--;
+    }
+
+    private void creix() {
+        long[] vellesClaus = claus;
+        int[] vellsHashos = hashos;
+        int[] vellsValors = valors;
+        reserva(vellsHashos.length << 1, vellsValors != null);
+        for (int i = 0; i < vellsHashos.length; i++) {
+            int h = vellsHashos[i];
+            if (h == 0) continue;
+            int pos = posicioInicial(h);
+            while (hashos[pos] != 0) pos = (pos + 1) & mascara;
+            hashos[pos] = h;
+            System.arraycopy(vellesClaus, i * paraules, claus, pos * paraules, paraules);
+            if (vellsValors != null) valors[pos] = vellsValors[i];
+        }
+    }
+
+    /**
+     * @return el nombre d'estats guardats
+     */
+    public int mida() { return mida; }
+
+    /**
+     * Buida la taula i en torna a reduir la capacitat a la inicial.
+     */
+    public void buida() {
+        reserva(CAPACITAT_INICIAL, valors != null);
+        mida = 0;
+    }
+}
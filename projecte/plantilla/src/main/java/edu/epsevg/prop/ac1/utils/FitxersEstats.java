@@ -0,0 +1,190 @@
+package edu.epsevg.prop.ac1.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Fitxers binaris de claus d'estat empaquetades (Mapa.escriuClau), ordenades i sense
+ * repetits, per a les cerques en memòria externa. Cada registre són w longs; l'ordre és
+ * el lexicogràfic dels longs (amb signe). Totes les operacions llegeixen i escriuen els
+ * fitxers seqüencialment, excepte conte, que fa una cerca binària.
+ */
+public final class FitxersEstats {
+    private static final int MIDA_BUFFER = 1 << 16;
+
+    private FitxersEstats() { }
+
+    /**
+     * Ordena els n registres de buf, elimina els repetits i els escriu al fitxer.
+     * @return el nombre de registres escrits
+     */
+    public static long escriuOrdenat(long[] buf, int n, int w, Path fitxer) throws IOException {
+        try (Escriptor out = new Escriptor(fitxer, w)) {
+            if (w == 1) {
+                Arrays.sort(buf, 0, n);
+                for (int i = 0; i < n; i++) {
+                    if (i == 0 || buf[i] != buf[i - 1]) out.escriu(buf, i);
+                }
+            } else {
+                Integer[] ordre = new Integer[n];
+                for (int i = 0; i < n; i++) ordre[i] = i;
+                Arrays.sort(ordre, (a, b) -> compara(buf, a * w, buf, b * w, w));
+                for (int i = 0; i < n; i++) {
+                    if (i == 0 || compara(buf, ordre[i] * w, buf, ordre[i - 1] * w, w) != 0) out.escriu(buf, ordre[i] * w);
+                }
+            }
+            return out.escrits;
+        }
+    }
+
+    /**
+     * Fusiona fitxers ordenats en un de sol, sense repetits
+     * @return el nombre de registres escrits
+     */
+    public static long fusiona(List<Path> entrades, int w, Path sortida) throws IOException {
+        PriorityQueue<Lector> cua = new PriorityQueue<>();
+        try (Escriptor out = new Escriptor(sortida, w)) {
+            for (Path p : entrades) {
+                Lector l = new Lector(p, w);
+                if (l.avanca()) cua.add(l); else l.close();
+            }
+            long[] ultim = new long[w];
+            while (!cua.isEmpty()) {
+                Lector l = cua.poll();
+                if (out.escrits == 0 || compara(l.actual, 0, ultim, 0, w) != 0) {
+                    out.escriu(l.actual, 0);
+                    System.arraycopy(l.actual, 0, ultim, 0, w);
+                }
+                if (l.avanca()) cua.add(l); else l.close();
+            }
+            return out.escrits;
+        } finally {
+            for (Lector l : cua) l.close();
+        }
+    }
+
+    /**
+     * Escriu els registres del fitxer a que no són al fitxer b (tots dos ordenats)
+     * @return el nombre de registres escrits
+     */
+    public static long resta(Path a, Path b, int w, Path sortida) throws IOException {
+        try (Lector la = new Lector(a, w); Lector lb = new Lector(b, w); Escriptor out = new Escriptor(sortida, w)) {
+            boolean hiHaB = lb.avanca();
+            while (la.avanca()) {
+                int c = -1;
+                while (hiHaB && (c = compara(lb.actual, 0, la.actual, 0, w)) < 0) hiHaB = lb.avanca();
+                if (!hiHaB || c != 0) out.escriu(la.actual, 0);
+            }
+            return out.escrits;
+        }
+    }
+
+    /**
+     * @return true si el fitxer ordenat conté la clau (cerca binària)
+     */
+    public static boolean conte(Path fitxer, int w, long[] clau) throws IOException {
+        try (FileChannel ch = FileChannel.open(fitxer, StandardOpenOption.READ)) {
+            ByteBuffer reg = ByteBuffer.allocate(8 * w);
+            long[] llegit = new long[w];
+            long lo = 0, hi = ch.size() / (8L * w) - 1;
+            while (lo <= hi) {
+                long mig = (lo + hi) >>> 1;
+                reg.clear();
+                while (reg.hasRemaining()) {
+                    if (ch.read(reg, mig * 8 * w + reg.position()) < 0) throw new EOFException();
+                }
+                reg.flip();
+                for (int i = 0; i < w; i++) llegit[i] = reg.getLong();
+                int c = compara(llegit, 0, clau, 0, w);
+                if (c == 0) return true;
+                if (c < 0) lo = mig + 1; else hi = mig - 1;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return el nombre de registres del fitxer
+     */
+    public static long mida(Path fitxer, int w) throws IOException {
+        return Files.size(fitxer) / (8L * w);
+    }
+
+    private static int compara(long[] a, int offA, long[] b, int offB, int w) {
+        for (int i = 0; i < w; i++) {
+            int c = Long.compare(a[offA + i], b[offB + i]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Lectura seqüencial d'un fitxer de claus: actual és el registre llegit per l'últim avanca
+     */
+    public static final class Lector implements Closeable, Comparable<Lector> {
+        private final DataInputStream in;
+        private final int w;
+        private long pendents;
+        public final long[] actual;
+
+        public Lector(Path fitxer, int w) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(fitxer), MIDA_BUFFER));
+            this.w = w;
+            this.pendents = mida(fitxer, w);
+            this.actual = new long[w];
+        }
+
+        /**
+         * @return false si ja no queden registres
+         */
+        public boolean avanca() throws IOException {
+            if (pendents == 0) return false;
+            for (int i = 0; i < w; i++) actual[i] = in.readLong();
+            pendents--;
+            return true;
+        }
+
+        @Override
+        public int compareTo(Lector o) {
+            return compara(actual, 0, o.actual, 0, w);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Escriptura seqüencial d'un fitxer de claus
+     */
+    public static final class Escriptor implements Closeable {
+        private final DataOutputStream out;
+        private final int w;
+        private long escrits;
+
+        public Escriptor(Path fitxer, int w) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fitxer), MIDA_BUFFER));
+            this.w = w;
+        }
+
+        public void escriu(long[] clau, int offset) throws IOException {
+            for (int i = 0; i < w; i++) out.writeLong(clau[offset + i]);
+            escrits++;
+        }
+
+        public long getEscrits() { return escrits; }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package edu.epsevg.prop.ac1.utils;
+
+import edu.epsevg.prop.ac1.model.Mapa;
+
+/**
+ * Taula estat -&gt; int sobre claus primitives (veure EstatsOberts). Substitueix els
+ * HashMap&lt;Mapa,Integer&gt; de la LNT: els valors (profunditats) no es converteixen a Integer.
+ */
+public class TaulaEstats extends EstatsOberts {
+
+    /**
+     * @param paraules paraules de la clau dels estats que s'hi guardaran (Mapa.getParaulesClau())
+     */
+    public TaulaEstats(int paraules) {
+        super(paraules, true);
+    }
+
+    /**
+     * @param paraules paraules de la clau dels estats que s'hi guardaran
+     * @param capacitatInicial nombre de posicions inicials (s'arrodoneix a potència de 2)
+     */
+    public TaulaEstats(int paraules, int capacitatInicial) {
+        super(paraules, capacitatInicial, true);
+    }
+
+    /**
+     * @return el valor associat a l'estat, o perDefecte si no hi és
+     */
+    public int get(Mapa estat, int perDefecte) {
+        int pos = localitza(estat);
+        return pos >= 0 ? valors[pos] : perDefecte;
+    }
+
+    /**
+     * Associa el valor a l'estat (substituint-ne l'anterior si n'hi havia)
+     */
+    public void posa(Mapa estat, int valor) {
+        int pos = localitza(estat);
+        if (pos < 0) pos = insereix(estat, -pos - 1);
+        valors[pos] = valor;
+    }
+
+    /**
+     * @return true si l'estat és a la taula
+     */
+    public boolean conte(Mapa estat) {
+        return localitza(estat) >= 0;
+    }
+
+    /**
+     * Treu l'estat de la taula
+     * @return true si hi era
+     */
+    public boolean elimina(Mapa estat) {
+        int pos = localitza(estat);
+        if (pos < 0) return false;
+        esborra(pos);
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package edu.epsevg.prop.ac1.utils;
+
+import edu.epsevg.prop.ac1.model.Mapa;
+
+/**
+ * Taula de transposicions de mida fixa per a cerques en profunditat (IDA*): no creix mai,
+ * i per tant la memòria queda acotada des del principi.
+ *
+ * Cada entrada guarda la clau empaquetada de l'estat, la g amb què s'ha cercat, la cota
+ * de cost fins a la meta que se n'ha obtingut, la iteració en què es va desar i una marca
+ * lliure per a la cerca que la fa servir (SMA* hi guarda el pare de la còpia desada). Les
+ * entrades s'agrupen en cubetes de 2 posicions triades pel hash. Quan la cubeta és plena
+ * es reemplaça, per aquest ordre: la mateixa clau, una posició buida, l'entrada d'una
+ * iteració més antiga o, si totes dues són de la iteració actual, la de g més gran
+ * (la més profunda, que estalvia menys feina si es torna a trobar).
+ */
+public class TaulaTransposicions {
+    private static final int PER_CUBETA = 2;
+
+    private final int paraules;
+    private final long[] claus;
+    private final int[] hashos;      // 0 = posició buida
+    private final int[] gs;
+    private final int[] cotes;
+    private final int[] iteracions;
+    private final int[] marques;
+    private final int desplacament;
+    private final long[] tmp;
+
+    /**
+     * @param paraules paraules de la clau dels estats (Mapa.getParaulesClau())
+     * @param entrades nombre màxim d'entrades (s'arrodoneix a potència de 2)
+     */
+    public TaulaTransposicions(int paraules, int entrades) {
+        int cap = Integer.highestOneBit(Math.max(2 * PER_CUBETA, entrades) - 1) << 1;
+        this.paraules = paraules;
+        this.claus = new long[cap * paraules];
+        this.hashos = new int[cap];
+        this.gs = new int[cap];
+        this.cotes = new int[cap];
+        this.iteracions = new int[cap];
+        this.marques = new int[cap];
+        this.desplacament = Integer.numberOfLeadingZeros(cap / PER_CUBETA) + 1;
+        this.tmp = new long[paraules];
+    }
+
+    private static int hash(Mapa estat) {
+        int h = estat.hashCode();
+        return h == 0 ? 1 : h;
+    }
+
+    private int cubeta(int h) {
+        return ((h * 0x9E3779B9) >>> desplacament) * PER_CUBETA;
+    }
+
+    private boolean mateixaClau(int pos) {
+        int base = pos * paraules;
+        for (int w = 0; w < paraules; w++) if (claus[base + w] != tmp[w]) return false;
+        return true;
+    }
+
+    /**
+     * @return la posició de l'estat a la taula, o -1 si no hi és
+     */
+    public int busca(Mapa estat) {
+        estat.escriuClau(tmp, 0);
+        int h = hash(estat);
+        int c = cubeta(h);
+        for (int pos = c; pos < c + PER_CUBETA; pos++) {
+            if (hashos[pos] == h && mateixaClau(pos)) return pos;
+        }
+        return -1;
+    }
+
+    /**
+     * @return la g amb què es va desar l'entrada
+     */
+    public int getG(int pos) { return gs[pos]; }
+
+    /**
+     * @return la cota inferior del cost fins a la meta desada a l'entrada
+     */
+    public int getCota(int pos) { return cotes[pos]; }
+
+    /**
+     * @return la iteració en què es va desar l'entrada
+     */
+    public int getIteracio(int pos) { return iteracions[pos]; }
+
+    /**
+     * @return la marca desada a l'entrada
+     */
+    public int getMarca(int pos) { return marques[pos]; }
+
+    /**
+     * Desa (o actualitza) l'entrada de l'estat seguint la política de reemplaçament.
+     */
+    public void desa(Mapa estat, int g, int cota, int iteracio) {
+        desa(estat, g, cota, iteracio, 0);
+    }
+
+    /**
+     * Desa (o actualitza) l'entrada de l'estat amb una marca.
+     */
+    public void desa(Mapa estat, int g, int cota, int iteracio, int marca) {
+        estat.escriuClau(tmp, 0);
+        int h = hash(estat);
+        int c = cubeta(h);
+        int victima = -1;
+        for (int pos = c; pos < c + PER_CUBETA; pos++) {
+            if (hashos[pos] == h && mateixaClau(pos)) {
+                victima = pos;
+                break;
+            }
+            if (victima < 0 || millorVictima(pos, victima)) victima = pos;
+        }
+        hashos[victima] = h;
+        System.arraycopy(tmp, 0, claus, victima * paraules, paraules);
+        gs[victima] = g;
+        cotes[victima] = cota;
+        iteracions[victima] = iteracio;
+        marques[victima] = marca;
+    }
+
+    /**
+     * @return true si és preferible reemplaçar a que b
+     */
+    private boolean millorVictima(int a, int b) {
+        if (hashos[b] == 0) return false;
+        if (hashos[a] == 0) return true;
+        if (iteracions[a] != iteracions[b]) return iteracions[a] < iteracions[b];
+        return gs[a] > gs[b];
+    }
+
+    /**
+     * @return el nombre màxim d'entrades
+     */
+    public int capacitat() { return hashos.length; }
+}
@@ -0,0 +1,57 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaARAStar;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ARAStarTest {
+    /**
+     * Guarda cada solució publicada (longitud i fita)
+     */
+    private static final class Solucions extends ResultatCerca {
+        final List<Integer> longituds = new ArrayList<>();
+        final List<Double> fites = new ArrayList<>();
+
+        @Override
+        public void setFitaSubOptimalitat(double fita) {
+            super.setFitaSubOptimalitat(fita);
+            longituds.add(getCami().size());
+            fites.add(fita);
+        }
+    }
+
+    @Test
+    public void testARAStarFites() throws Exception {
+        int[] optims = {37, 79};
+        String[] mapes = {"mapC", "mapD"};
+        for (int k = 0; k < mapes.length; k++) {
+            Mapa m = new Mapa(Path.of("src/main/resources/" + mapes[k] + ".map"));
+            Solucions r = new Solucions();
+            new CercaARAStar(true, new HeuristicaBasica(), 60000, 5.0, 1.0).ferCerca(m, r);
+            assertFalse(r.longituds.isEmpty(), mapes[k]);
+
+            // Cada solució publicada respecta la seva fita i no empitjora l'anterior (a mapD la
+            // primera, amb w = 5, fa 113 moviments)
+            for (int i = 0; i < r.longituds.size(); i++) {
+                assertTrue(r.fites.get(i) >= 1.0);
+                assertTrue(r.longituds.get(i) <= r.fites.get(i) * optims[k] + 1e-9, mapes[k] + " solució " + i);
+                if (i > 0) assertTrue(r.longituds.get(i) <= r.longituds.get(i - 1));
+            }
+            // Amb temps de sobres, l'última és òptima
+            assertEquals(1.0, r.getFitaSubOptimalitat());
+            assertEquals(optims[k], r.getCami().size());
+            Mapa estat = m;
+            for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+            assertTrue(estat.esMeta());
+        }
+    }
+}
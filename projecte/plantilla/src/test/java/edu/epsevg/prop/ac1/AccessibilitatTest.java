@@ -0,0 +1,52 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.cerca.CercaBFSBidireccional;
+import edu.epsevg.prop.ac1.model.Accessibilitat;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessibilitatTest {
+    @Test
+    public void testMapesResolubles() throws Exception {
+        for (String nom : new String[]{"mapA", "mapB", "mapC", "mapD"}) {
+            Mapa m = new Mapa(Path.of("src/main/resources/" + nom + ".map"));
+            assertTrue(Accessibilitat.de(m.getTauler()).esResoluble(m), nom);
+        }
+    }
+
+    @Test
+    public void testClauDarrereLaPorta(@TempDir Path dir) throws Exception {
+        // la clau a és darrere de la porta A, l'única entrada a la sortida
+        Path fitxer = dir.resolve("tancat.map");
+        Files.write(fitxer, Arrays.asList(
+                "#######",
+                "#1  A #",
+                "#####a#",
+                "#####@#",
+                "#######"));
+        Mapa m = new Mapa(fitxer);
+        assertFalse(Accessibilitat.de(m.getTauler()).esResoluble(m));
+        ResultatCerca r = new ResultatCerca();
+        new CercaBFS(true).ferCerca(m, r);
+        assertNull(r.getCami());
+        assertEquals(0, r.getNodesExplorats()); // no s'ha cercat res
+    }
+
+    @Test
+    public void testBidireccionalMapC() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaBFSBidireccional(true).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(37, r.getCami().size());
+    }
+}
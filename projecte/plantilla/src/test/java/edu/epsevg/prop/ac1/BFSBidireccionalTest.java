@@ -0,0 +1,41 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.cerca.CercaBFSBidireccional;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BFSBidireccionalTest {
+    @Test
+    public void testBidireccionalMapC() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaBFSBidireccional(true).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(37, r.getCami().size()); // mateixa longitud que el BFS
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+
+    @Test
+    public void testBidireccionalNoExploraMesQueBFS() throws Exception {
+        // A mapC la banda enrere és estreta i estalvia nodes; a mapD (massa estats meta) es
+        // fa el BFS normal
+        for (String nom : new String[]{"mapC", "mapD"}) {
+            Mapa m = new Mapa(Path.of("src/main/resources/" + nom + ".map"));
+            ResultatCerca rb = new ResultatCerca();
+            new CercaBFS(true).ferCerca(m, rb);
+            ResultatCerca r = new ResultatCerca();
+            new CercaBFSBidireccional(true).ferCerca(m, r);
+            assertEquals(rb.getCami().size(), r.getCami().size());
+            assertTrue(r.getNodesExplorats() <= rb.getNodesExplorats(), nom);
+        }
+    }
+}
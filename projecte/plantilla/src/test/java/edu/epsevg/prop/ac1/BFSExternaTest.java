@@ -0,0 +1,37 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaBFSExterna;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BFSExternaTest {
+    @Test
+    public void testDeClau() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapD.map"));
+        long[] clau = new long[m.getParaulesClau()];
+        for (Moviment mv : m.getAccionsPossibles()) {
+            Mapa fill = m.mou(mv);
+            fill.escriuClau(clau, 0);
+            assertEquals(fill, fill.deClau(clau, 0));
+        }
+    }
+
+    @Test
+    public void testBFSExternaMapC() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        ResultatCerca r = new ResultatCerca();
+        // buffer petit per forçar molts fitxers parcials per capa
+        new CercaBFSExterna(true, 1000, null).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(37, r.getCami().size());
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+}
@@ -0,0 +1,25 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.cerca.CercaBFSParalel;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BFSParalelTest {
+    @Test
+    public void testMateixosResultatsQueBFS() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        ResultatCerca seq = new ResultatCerca();
+        new CercaBFS(true).ferCerca(m, seq);
+        ResultatCerca par = new ResultatCerca();
+        new CercaBFSParalel(true, 4).ferCerca(m, par);
+        assertEquals(seq.getCami().toString(), par.getCami().toString());
+        assertEquals(seq.getNodesExplorats(), par.getNodesExplorats());
+        assertEquals(seq.getNodesTallats(), par.getNodesTallats());
+    }
+}
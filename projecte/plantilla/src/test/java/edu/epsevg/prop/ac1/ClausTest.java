@@ -0,0 +1,123 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaAStar;
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.cerca.CercaClaus;
+import edu.epsevg.prop.ac1.cerca.CercaHPAStar;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.model.GrafSales;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClausTest {
+    @Test
+    public void testClausMapD() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapD.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaClaus(true, new HeuristicaBasica()).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(79, r.getCami().size()); // mateixa longitud que el BFS
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+
+    @Test
+    public void testHPAStarMapD() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapD.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaHPAStar(true, new HeuristicaBasica()).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(79, r.getCami().size());
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+
+    @Test
+    public void testHPAStarDiversosAgents() throws Exception {
+        // mapC i mapD tenen dos agents: HPA* dona el camí dels macro-moviments amb la seva
+        // fita, molt per sota dels nodes de l'A* complet
+        String[] mapes = {"mapC", "mapD"};
+        int[] optims = {37, 79};
+        for (int k = 0; k < mapes.length; k++) {
+            Mapa m = new Mapa(Path.of("src/main/resources/" + mapes[k] + ".map"));
+            ResultatCerca ra = new ResultatCerca();
+            new CercaAStar(true, new HeuristicaBasica()).ferCerca(m, ra);
+            ResultatCerca r = new ResultatCerca();
+            new CercaHPAStar(true, new HeuristicaBasica()).ferCerca(m, r);
+            assertNotNull(r.getCami());
+            assertTrue(r.getFitaSubOptimalitat() >= 1.0);
+            assertTrue(r.getCami().size() <= optims[k] * r.getFitaSubOptimalitat());
+            assertTrue(r.getNodesExplorats() * 100 < ra.getNodesExplorats());
+            Mapa estat = m;
+            for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+            assertTrue(estat.esMeta());
+        }
+    }
+
+    @Test
+    public void testGrafSalesRelaxat(@TempDir Path dir) throws Exception {
+        // L'agent 1 tapa el passadís a l'agent 2: en el graf relaxat el travessa
+        Path fitxer = dir.resolve("passadis.map");
+        Files.write(fitxer, List.of("##########", "#a  1 2A@#", "#### #####", "##########"));
+        Mapa m = new Mapa(fitxer);
+        int[] destins = new int[2], costos = new int[2];
+        assertEquals(0, new GrafSales(m.getTauler()).genera(m, 1, destins, costos, 0));
+        assertEquals(1, new GrafSales(m.getTauler(), true).genera(m, 1, destins, costos, 0));
+        assertEquals(5, costos[0]);
+    }
+
+    @Test
+    public void testClausUnAgentMapB() throws Exception {
+        // Un sol agent: la cerca sobre macro-moviments és exacta
+        Mapa m = new Mapa(Path.of("src/main/resources/mapB.map"));
+        for (CercaClaus c : new CercaClaus[] {new CercaClaus(true, new HeuristicaBasica()), new CercaHPAStar(true, new HeuristicaBasica())}) {
+            ResultatCerca r = new ResultatCerca();
+            c.ferCerca(m, r);
+            assertNotNull(r.getCami());
+            assertEquals(31, r.getCami().size());
+        }
+    }
+
+    @Test
+    public void testClausExpandeixMenysQueAStar() throws Exception {
+        // Amb un sol agent cada expansió és un tram sencer entre claus: A* n'expandeix 157
+        Mapa m = new Mapa(Path.of("src/main/resources/mapB.map"));
+        ResultatCerca ra = new ResultatCerca();
+        new CercaAStar(true, new HeuristicaBasica()).ferCerca(m, ra);
+        ResultatCerca rc = new ResultatCerca();
+        new CercaClaus(true, new HeuristicaBasica()).ferCerca(m, rc);
+        assertEquals(ra.getCami().size(), rc.getCami().size());
+        assertTrue(rc.getNodesExplorats() * 10 < ra.getNodesExplorats());
+    }
+
+    @Test
+    public void testClausAgentQueFaNosa(@TempDir Path dir) throws Exception {
+        // L'agent 1 és al passadís entre l'agent 2 i la clau, amb un replà per apartar-se:
+        // amb diversos agents la longitud ha de ser la del BFS
+        Path fitxer = dir.resolve("passadis.map");
+        Files.write(fitxer, List.of("##########", "#a  1 2A@#", "#### #####", "##########"));
+        Mapa m = new Mapa(fitxer);
+        ResultatCerca rb = new ResultatCerca();
+        new CercaBFS(true).ferCerca(m, rb);
+        for (CercaClaus c : new CercaClaus[] {new CercaClaus(true, new HeuristicaBasica()), new CercaHPAStar(true, new HeuristicaBasica())}) {
+            ResultatCerca r = new ResultatCerca();
+            c.ferCerca(m, r);
+            assertNotNull(r.getCami());
+            assertEquals(rb.getCami().size(), r.getCami().size());
+            Mapa estat = m;
+            for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+            assertTrue(estat.esMeta());
+        }
+    }
+}
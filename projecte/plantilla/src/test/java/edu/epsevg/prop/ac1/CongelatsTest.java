@@ -0,0 +1,45 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CongelatsTest {
+    @Test
+    public void testMapesSenseCongelats() throws Exception {
+        for (String nom : new String[]{"mapA", "mapB", "mapC", "mapD"}) {
+            Mapa m = new Mapa(Path.of("src/main/resources/" + nom + ".map"));
+            for (int a = 0; a < m.getNumAgents(); a++) assertFalse(m.esCongelat(a), nom);
+        }
+    }
+
+    @Test
+    public void testAgentTancat(@TempDir Path dir) throws Exception {
+        // mapC amb un tercer agent tancat en un passadís sense claus ni sortida
+        Path original = Path.of("src/main/resources/mapC.map");
+        List<String> linies = new ArrayList<>(Files.readAllLines(original));
+        linies.add("#···3·······#");
+        linies.add("#############");
+        Path fitxer = dir.resolve("mapC3.map");
+        Files.write(fitxer, linies);
+
+        Mapa m = new Mapa(fitxer);
+        assertTrue(m.esCongelat(2));
+        assertFalse(m.esCongelat(0));
+        ResultatCerca r = new ResultatCerca();
+        new CercaBFS(true).ferCerca(m, r);
+        ResultatCerca r0 = new ResultatCerca();
+        new CercaBFS(true).ferCerca(new Mapa(original), r0);
+        assertEquals(37, r.getCami().size());
+        assertEquals(r0.getNodesExplorats(), r.getNodesExplorats()); // com si no hi fos
+    }
+}
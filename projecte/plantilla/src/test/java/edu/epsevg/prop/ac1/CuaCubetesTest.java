@@ -0,0 +1,81 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaAStar;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import edu.epsevg.prop.ac1.utils.CuaCubetes;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CuaCubetesTest {
+    @Test
+    public void testOrdre() {
+        CuaCubetes<String> q = new CuaCubetes<>();
+        q.afegeix("f5g1", 5, 1);
+        q.afegeix("f3g0", 3, 0);
+        q.afegeix("f5g4", 5, 4);
+        q.afegeix("f2g2", 2, 2);  // per sota de la primera f afegida
+        assertEquals(2, q.getMinF());
+        assertEquals("f2g2", q.treu());
+        assertEquals("f3g0", q.treu());
+        assertEquals("f5g4", q.treu());  // a igual f, g més gran primer
+        assertEquals("f5g1", q.treu());
+        assertTrue(q.esBuida());
+        assertNull(q.treu());
+        assertEquals(Integer.MAX_VALUE, q.getMinF());
+    }
+
+    @Test
+    public void testFGranNoCreaCubetes() {
+        CuaCubetes<Integer> q = new CuaCubetes<>();
+        q.afegeix(1, 10, 0);
+        q.afegeix(2, Integer.MAX_VALUE - 1, 0);  // amb un vector fins a f, no hi cabria
+        q.afegeix(3, 1_000_000_000, 0);
+        assertEquals(1, q.treu());
+        assertEquals(3, q.treu());
+        q.afegeix(4, 1_000_000_001, 0);
+        assertEquals(4, q.treu());
+        assertEquals(2, q.treu());
+        assertTrue(q.esBuida());
+    }
+
+    @Test
+    public void testAleatoriContraPriorityQueue() {
+        // Finestra petita per passar sovint pel desbordament
+        CuaCubetes<int[]> q = new CuaCubetes<>(8);
+        PriorityQueue<int[]> ref = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(b[1], a[1]));
+        Random rnd = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            if (ref.isEmpty() || rnd.nextInt(3) > 0) {
+                int[] e = {rnd.nextInt(100), rnd.nextInt(20)};
+                q.afegeix(e, e[0], e[1]);
+                ref.add(e);
+            } else {
+                int[] a = q.treu(), b = ref.poll();
+                assertEquals(b[0], a[0]);
+                assertEquals(b[1], a[1]);
+            }
+            assertEquals(ref.size(), q.mida());
+        }
+    }
+
+    @Test
+    public void testAStarHeuristicaInadmissible() throws Exception {
+        // h de l'ordre de 10^8: la cua no pot reservar una cubeta per cada f
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        HeuristicaBasica basica = new HeuristicaBasica();
+        ResultatCerca r = new ResultatCerca();
+        new CercaAStar(true, estat -> basica.h(estat) * 10_000_000).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+}
@@ -0,0 +1,49 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaDFSPila;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DFSPilaTest {
+    @Test
+    public void testIDSPilaMapA() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapA.map"));
+        for (boolean lnt : new boolean[] {true, false}) {
+            CercaDFSPila ids = new CercaDFSPila(lnt, 80, true);
+            ResultatCerca r = new ResultatCerca();
+            ids.ferCerca(m, r);
+            assertNotNull(r.getCami());
+            assertEquals(5, r.getCami().size()); // seguint l'enunciat, solucio optima 5
+        }
+    }
+
+    @Test
+    public void testIDSPilaMapB() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapB.map"));
+        CercaDFSPila ids = new CercaDFSPila(true, 80, true);
+        ResultatCerca r = new ResultatCerca();
+        ids.ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(31, r.getCami().size());
+    }
+
+    @Test
+    public void testDFSPilaMapD() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapD.map"));
+        Mapa copia = new Mapa(m);
+        CercaDFSPila dfs = new CercaDFSPila(true);
+        ResultatCerca r = new ResultatCerca();
+        dfs.ferCerca(m, r);
+        assertNotNull(r.getCami());
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+        assertEquals(copia, m); // la cerca treballa sobre una còpia: l'inicial no canvia
+    }
+}
@@ -0,0 +1,75 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaAStar;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaDistancies;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaFills;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EPEAStarTest {
+    @Test
+    public void testFuncioSeleccioOperadors() throws Exception {
+        // Per cada estat assolible, la h dels fills sense generar-los és la de generar-los
+        HeuristicaFills[] heuristiques = {new HeuristicaBasica(), new HeuristicaDistancies()};
+        for (String nom : new String[]{"mapA", "mapB", "mapC"}) {
+            Mapa inicial = new Mapa(Path.of("src/main/resources/" + nom + ".map"));
+            Set<Mapa> vistos = new HashSet<>(List.of(inicial));
+            Deque<Mapa> cua = new ArrayDeque<>(vistos);
+            Moviment[] accions = new Moviment[inicial.getMaxAccions()];
+            int[] hFills = new int[inicial.getMaxAccions()];
+            while (!cua.isEmpty() && vistos.size() < 5000) {
+                Mapa estat = cua.poll();
+                int num = estat.accionsPossibles(accions, 0);
+                for (HeuristicaFills heur : heuristiques) {
+                    boolean sap = heur.hFills(estat, accions, num, hFills);
+                    // La taula exacta només és per a un agent actiu (mapA i mapC en tenen dos)
+                    assertEquals(heur instanceof HeuristicaBasica || nom.equals("mapB"), sap);
+                    for (int i = 0; sap && i < num; i++) {
+                        assertEquals(heur.h(estat.mou(accions[i])), hFills[i], nom + " " + accions[i]);
+                    }
+                }
+                for (int i = 0; i < num; i++) {
+                    Mapa fill = estat.mou(accions[i]);
+                    if (!fill.esMeta() && vistos.add(fill)) cua.add(fill);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEPEAStarMapB() throws Exception {
+        // Els fills amb f massa gran no es generen: se'n tallen menys per duplicats
+        Mapa m = new Mapa(Path.of("src/main/resources/mapB.map"));
+        ResultatCerca astar = new ResultatCerca();
+        new CercaAStar(true, new HeuristicaDistancies()).ferCerca(m, astar);
+        ResultatCerca epea = new ResultatCerca();
+        new CercaAStar(true, new HeuristicaDistancies(), true).ferCerca(m, epea);
+        assertEquals(31, astar.getCami().size());
+        assertEquals(31, epea.getCami().size());
+        assertTrue(epea.getNodesTallats() < astar.getNodesTallats());
+    }
+
+    @Test
+    public void testEPEAStarMapCMapD() throws Exception {
+        String[] mapes = {"mapC", "mapD"};
+        int[] optims = {37, 79};
+        for (int k = 0; k < mapes.length; k++) {
+            Mapa m = new Mapa(Path.of("src/main/resources/" + mapes[k] + ".map"));
+            ResultatCerca r = new ResultatCerca();
+            new CercaAStar(true, new HeuristicaBasica(), true).ferCerca(m, r);
+            assertNotNull(r.getCami());
+            assertEquals(optims[k], r.getCami().size());
+            Mapa estat = m;
+            for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+            assertTrue(estat.esMeta());
+        }
+    }
+}
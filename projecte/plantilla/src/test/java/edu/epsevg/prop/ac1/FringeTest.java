@@ -0,0 +1,41 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaFringe;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FringeTest {
+    @Test
+    public void testFringeMapCMapD() throws Exception {
+        // La mateixa instància dues vegades: en acabar allibera els vectors i en torna a reservar
+        CercaFringe fringe = new CercaFringe(true, new HeuristicaBasica());
+        String[] mapes = {"mapC", "mapD"};
+        int[] optims = {37, 79};
+        for (int k = 0; k < mapes.length; k++) {
+            Mapa m = new Mapa(Path.of("src/main/resources/" + mapes[k] + ".map"));
+            ResultatCerca r = new ResultatCerca();
+            fringe.ferCerca(m, r);
+            assertNotNull(r.getCami());
+            assertEquals(optims[k], r.getCami().size());
+            Mapa estat = m;
+            for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+            assertTrue(estat.esMeta());
+        }
+    }
+
+    @Test
+    public void testFringeSenseLNT() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapA.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaFringe(false, new HeuristicaBasica()).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(5, r.getCami().size());
+    }
+}
@@ -0,0 +1,45 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaAStar;
+import edu.epsevg.prop.ac1.cerca.CercaHDAStar;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HDAStarTest {
+    private static void comprovaOptim(String fitxer) throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/" + fitxer));
+        ResultatCerca ra = new ResultatCerca();
+        new CercaAStar(true, new HeuristicaBasica()).ferCerca(m, ra);
+        assertNotNull(ra.getCami());
+
+        // L'ordre d'arribada entre fils canvia a cada execució: totes han de ser òptimes
+        for (boolean lnt : new boolean[] {true, false}) {
+            for (int i = 0; i < 3; i++) {
+                ResultatCerca r = new ResultatCerca();
+                new CercaHDAStar(lnt, new HeuristicaBasica(), 4).ferCerca(m, r);
+                assertNotNull(r.getCami());
+                assertEquals(ra.getCami().size(), r.getCami().size());
+                Mapa estat = m;
+                for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+                assertTrue(estat.esMeta());
+            }
+        }
+    }
+
+    @Test
+    public void testHDAStarMapC() throws Exception {
+        comprovaOptim("mapC.map");
+    }
+
+    @Test
+    public void testHDAStarMapD() throws Exception {
+        comprovaOptim("mapD.map");
+    }
+}
@@ -0,0 +1,59 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaAStar;
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaDistancies;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeuristicaDistanciesTest {
+    @Test
+    public void testExactaAmbUnAgent() throws Exception {
+        // mapB té un sol agent: al llarg d'un camí òptim, h és exactament el que queda
+        Mapa m = new Mapa(Path.of("src/main/resources/mapB.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaBFS(true).ferCerca(m, r);
+        List<Moviment> cami = r.getCami();
+        HeuristicaDistancies heur = new HeuristicaDistancies();
+        Mapa estat = m;
+        for (int i = 0; i < cami.size(); i++) {
+            assertEquals(cami.size() - i, heur.h(estat));
+            estat = estat.mou(cami.get(i));
+        }
+        assertEquals(0, heur.h(estat));
+    }
+
+    @Test
+    public void testAStarMapD() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapD.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaAStar(true, new HeuristicaDistancies()).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(79, r.getCami().size());
+    }
+
+    @Test
+    public void testLimitTaulesExactes(@TempDir Path dir) throws Exception {
+        // La sortida és darrere la porta A i la clau és al passadís de sota: la distància
+        // exacta hi va a buscar la clau (14), la relaxada passa per la porta oberta (6)
+        Path fitxer = dir.resolve("porta.map");
+        Files.write(fitxer, List.of("#########", "#1  A  @#", "### #####", "#a      #", "#########"));
+        Mapa m = new Mapa(fitxer);
+        ResultatCerca r = new ResultatCerca();
+        new CercaBFS(true).ferCerca(m, r);
+        assertEquals(14, r.getCami().size());
+        assertEquals(14, new HeuristicaDistancies().h(m));
+        // 1 clau pendent: 2 taules de 45 enters, que no caben en 50
+        assertEquals(6, new HeuristicaDistancies(50).h(m));
+        assertEquals(14, new HeuristicaDistancies(90).h(m));
+    }
+}
@@ -0,0 +1,34 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaIDAStar;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IDAStarTest {
+    @Test
+    public void testIDAStarMapB() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapB.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaIDAStar(true, new HeuristicaBasica(), 1 << 12).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(31, r.getCami().size());
+    }
+
+    @Test
+    public void testIDAStarMapCTaules() throws Exception {
+        // Les cotes desades no poden dependre del camí: amb qualsevol mida de taula, òptim
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        for (int entrades : new int[] {1 << 12, 1 << 20}) {
+            ResultatCerca r = new ResultatCerca();
+            new CercaIDAStar(true, new HeuristicaBasica(), entrades).ferCerca(m, r);
+            assertNotNull(r.getCami());
+            assertEquals(37, r.getCami().size());
+        }
+    }
+}
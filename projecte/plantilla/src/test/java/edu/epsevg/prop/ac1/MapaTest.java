@@ -1,9 +1,21 @@
 package edu.epsevg.prop.ac1;
 
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.model.Direccio;
 import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.MapaBinari;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,4 +33,100 @@ public class MapaTest {
         assertNotNull(m);
         assertEquals(1, m.getAgents().size());
     }
+
+    @Test
+    public void testClauEstat() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapA.map"));
+        // anar i tornar porta al mateix estat, encara que sigui una instància diferent
+        Mapa anada = m.mou(new Moviment(1, Direccio.AVALL, false));
+        Mapa tornada = anada.mou(new Moviment(1, Direccio.AMUNT, false));
+        assertNotEquals(m, anada);
+        assertNotEquals(m.getClauEstat(), anada.getClauEstat());
+        assertEquals(m, tornada);
+        assertEquals(m.hashCode(), tornada.hashCode());
+        assertEquals(m.getHashZobrist(), tornada.getHashZobrist());
+        assertEquals(m.getClauEstat(), tornada.getClauEstat());
+    }
+
+    @Test
+    public void testMapaBinari(@TempDir Path dir) throws Exception {
+        Mapa text = new Mapa(Path.of("src/main/resources/mapD.map"));
+        Path bin = dir.resolve("mapD.mapb");
+        MapaBinari.compila(Path.of("src/main/resources/mapD.map"), bin);
+        Mapa binari = MapaBinari.carrega(bin);
+        assertEquals(text, binari);
+        assertEquals(text.getHashZobrist(), binari.getHashZobrist());
+        assertEquals(text.getTauler(), binari.getTauler());
+        assertEquals(text.getAccionsPossibles().toString(), binari.getAccionsPossibles().toString());
+    }
+
+    @Test
+    public void testMapaBinariTruncat(@TempDir Path dir) throws Exception {
+        Path bin = dir.resolve("mapD.mapb");
+        MapaBinari.compila(Path.of("src/main/resources/mapD.map"), bin);
+        byte[] dades = Files.readAllBytes(bin);
+
+        // Truncat a mitja taula, sense capçalera sencera, i amb un comptador corromput:
+        // IOException abans de llegir cap taula
+        Path truncat = dir.resolve("truncat.mapb");
+        Files.write(truncat, Arrays.copyOf(dades, dades.length - 10));
+        IOException e = assertThrows(IOException.class, () -> MapaBinari.carrega(truncat));
+        assertTrue(e.getMessage().contains("Mida"));
+
+        Path capcalera = dir.resolve("capcalera.mapb");
+        Files.write(capcalera, Arrays.copyOf(dades, 20));
+        assertThrows(IOException.class, () -> MapaBinari.carrega(capcalera));
+
+        byte[] corrupte = dades.clone();
+        ByteBuffer.wrap(corrupte).order(ByteOrder.LITTLE_ENDIAN).putInt(4 * 10, 1 << 30);  // numVeins
+        Path fitxer = dir.resolve("corrupte.mapb");
+        Files.write(fitxer, corrupte);
+        assertThrows(IOException.class, () -> MapaBinari.carrega(fitxer));
+
+        // Mida correcta però amb un índex de veí fora del mapa, o amb els inicis de la
+        // taula de veïns desordenats: IOException, no un error en fer servir el tauler
+        ByteBuffer capc = ByteBuffer.wrap(dades).order(ByteOrder.LITTLE_ENDIAN);
+        int cel = capc.getInt(4 * 2) * capc.getInt(4 * 3);
+        int inicis = 4 * (11 + capc.getInt(4 * 4) + capc.getInt(4 * 8) + capc.getInt(4 * 9));
+        int veins = inicis + 4 * (cel + 1);
+        byte[] vei = dades.clone();
+        ByteBuffer.wrap(vei).order(ByteOrder.LITTLE_ENDIAN).putInt(veins, cel);
+        Path fitxerVei = dir.resolve("vei.mapb");
+        Files.write(fitxerVei, vei);
+        e = assertThrows(IOException.class, () -> MapaBinari.carrega(fitxerVei));
+        assertTrue(e.getMessage().contains("veïns"));
+
+        byte[] inici = dades.clone();
+        ByteBuffer.wrap(inici).order(ByteOrder.LITTLE_ENDIAN).putInt(inicis + 4 * (cel / 2), Integer.MAX_VALUE);
+        Path fitxerInici = dir.resolve("inici.mapb");
+        Files.write(fitxerInici, inici);
+        assertThrows(IOException.class, () -> MapaBinari.carrega(fitxerInici));
+    }
+
+    @Test
+    public void testAplicaDesfes() throws Exception {
+        // Camí del BFS a mapD (amb recollides de claus): aplica ha de coincidir amb mou, i
+        // desfer-lo sencer ha de tornar a l'estat inicial
+        Mapa m = new Mapa(Path.of("src/main/resources/mapD.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaBFS(true).ferCerca(m, r);
+        List<Moviment> cami = r.getCami();
+        assertTrue(cami.stream().anyMatch(Moviment::isRecullClau));
+
+        Mapa inSitu = new Mapa(m);
+        Mapa esperat = m;
+        for (Moviment mv : cami) {
+            inSitu.aplica(mv);
+            esperat = esperat.mou(mv);
+            assertEquals(esperat, inSitu);
+            assertEquals(esperat.hashCode(), inSitu.hashCode());
+            assertEquals(esperat.getHashZobrist(), inSitu.getHashZobrist());
+        }
+        assertTrue(inSitu.esMeta());
+        for (int i = cami.size() - 1; i >= 0; i--) inSitu.desfes(cami.get(i));
+        assertEquals(m, inSitu);
+        assertEquals(m.hashCode(), inSitu.hashCode());
+        assertEquals(m.getHashZobrist(), inSitu.getHashZobrist());
+        assertEquals(m.getClauEstat(), inSitu.getClauEstat());
+    }
 }
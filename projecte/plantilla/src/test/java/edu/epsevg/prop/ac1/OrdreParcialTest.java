@@ -0,0 +1,54 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaBFS;
+import edu.epsevg.prop.ac1.cerca.CercaDFSPila;
+import edu.epsevg.prop.ac1.cerca.CercaIDS;
+import edu.epsevg.prop.ac1.cerca.CercaOrdreParcial;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrdreParcialTest {
+    @Test
+    public void testOrdreParcialIDS(@TempDir Path dir) throws Exception {
+        // Tres agents en una sala oberta: molts moviments independents
+        Path fitxer = dir.resolve("sala3.map");
+        Files.write(fitxer, List.of("#######", "#1·····#", "#2·····#", "#3····@#", "#######"));
+        Mapa m = new Mapa(fitxer);
+
+        ResultatCerca r0 = new ResultatCerca();
+        new CercaIDS(false).ferCerca(m, r0);
+        ResultatCerca r = new ResultatCerca();
+        new CercaOrdreParcial(new CercaIDS(false)).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(r0.getCami().size(), r.getCami().size());
+        assertTrue(r.getNodesExplorats() * 2 < r0.getNodesExplorats()); // 4402 -> 807
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+
+    @Test
+    public void testNomesCerquesEnArbre() {
+        assertThrows(IllegalArgumentException.class, () -> new CercaOrdreParcial(new CercaBFS(true)));
+        assertThrows(IllegalArgumentException.class, () -> new CercaOrdreParcial(new CercaIDS(true)));
+        assertThrows(IllegalArgumentException.class, () -> new CercaOrdreParcial(new CercaDFSPila(false)));
+    }
+
+    @Test
+    public void testIdentitatAmbOrdreParcial() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapD.map"));
+        Mapa ambOrdre = m.ambReduccioOrdreParcial();
+        assertEquals(m.getParaulesClau() + 1, ambOrdre.getParaulesClau());
+        assertEquals(m, ambOrdre.senseReduccioOrdreParcial());
+        assertEquals(m.getHashZobrist(), ambOrdre.getHashZobrist());
+    }
+}
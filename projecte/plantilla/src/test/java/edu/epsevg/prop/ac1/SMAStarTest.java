@@ -0,0 +1,51 @@
+package edu.epsevg.prop.ac1;
+
+import edu.epsevg.prop.ac1.cerca.CercaSMAStar;
+import edu.epsevg.prop.ac1.cerca.heuristica.HeuristicaBasica;
+import edu.epsevg.prop.ac1.model.Mapa;
+import edu.epsevg.prop.ac1.model.Moviment;
+import edu.epsevg.prop.ac1.resultat.ResultatCerca;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SMAStarTest {
+    @Test
+    public void testSMAStarMapC() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        ResultatCerca r = new ResultatCerca();
+        // A* n'explora uns 10000, però els que cal tenir alhora en memòria hi caben
+        new CercaSMAStar(true, new HeuristicaBasica(), 8000).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(37, r.getCami().size());
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+
+    @Test
+    @Timeout(30)
+    public void testSMAStarMapCPocaMemoria() throws Exception {
+        // Amb 4000 nodes cal oblidar i regenerar branques: ha d'acabar ràpid i amb l'òptim
+        Mapa m = new Mapa(Path.of("src/main/resources/mapC.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaSMAStar(true, new HeuristicaBasica(), 4000).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(37, r.getCami().size());
+        Mapa estat = m;
+        for (Moviment mv : r.getCami()) estat = estat.mou(mv);
+        assertTrue(estat.esMeta());
+    }
+
+    @Test
+    public void testSMAStarLimitPetit() throws Exception {
+        Mapa m = new Mapa(Path.of("src/main/resources/mapB.map"));
+        ResultatCerca r = new ResultatCerca();
+        new CercaSMAStar(true, new HeuristicaBasica(), 60).ferCerca(m, r);
+        assertNotNull(r.getCami());
+        assertEquals(31, r.getCami().size());
+    }
+}